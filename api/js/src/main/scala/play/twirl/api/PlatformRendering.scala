@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.twirl.api
+
+import scala.scalajs.js
+
+/**
+ * How content is rendered on Scala.js: the texts of the leaves are collected into a JavaScript array and joined once,
+ * which JavaScript engines do much faster than appending to a StringBuilder, and HTML is escaped with a native regular
+ * expression.
+ */
+private[api] object PlatformRendering {
+
+  def body(content: BufferedContent[?]): String = {
+    if (content.children.isEmpty) {
+      content.leafString
+    } else {
+      val texts  = new js.Array[String]()
+      val leaves = new BufferedContent.Leaves(content)
+      while (leaves.hasNext) texts.push(leaves.next().leafString)
+      texts.join("")
+    }
+  }
+
+  // The same replacements as Escaper.Html
+  private val HtmlChar  = new js.RegExp("[<>\"'&]")
+  private val HtmlChars = new js.RegExp("[<>\"'&]", "g")
+  private val Replacements =
+    js.Dictionary("<" -> "&lt;", ">" -> "&gt;", "\"" -> "&quot;", "'" -> "&#x27;", "&" -> "&amp;")
+  private val replace: js.Function1[String, String] = Replacements(_)
+
+  def escapeHtml(text: String): String = {
+    // Text that doesn't need escaping, the most common case, is returned as it is
+    if (!HtmlChar.test(text)) text
+    else text.asInstanceOf[js.Dynamic].replace(HtmlChars, replace).asInstanceOf[String]
+  }
+}
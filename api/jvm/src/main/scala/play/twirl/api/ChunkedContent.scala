@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.twirl.api
+
+import java.nio.ByteBuffer
+import java.nio.charset.Charset
+import java.nio.charset.StandardCharsets
+import java.util.ArrayDeque
+import java.util.NoSuchElementException
+import java.util.concurrent.Flow
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Exposes rendered content as a lazily produced sequence of encoded chunks.
+ *
+ * The elements tree is only traversed as far as needed to fill the next chunk, so the first chunks of a page can be
+ * sent while the rest of it is still being rendered, and memory use is bounded by the chunk size rather than the size
+ * of the page.
+ */
+object ChunkedContent {
+
+  /**
+   * The default maximum size of a chunk, in bytes.
+   */
+  val DefaultChunkSize: Int = 8192
+
+  /**
+   * The smallest allowed chunk size, in bytes. Every chunk must have room for the encoding of at least one character.
+   */
+  val MinChunkSize: Int = 16
+
+  /**
+   * Returns an iterator over the content encoded as UTF-8, in chunks of at most `chunkSize` bytes.
+   */
+  def iterator(content: BufferedContent[?], chunkSize: Int = DefaultChunkSize): Iterator[ByteBuffer] =
+    iterator(content, chunkSize, StandardCharsets.UTF_8)
+
+  /**
+   * Returns an iterator over the content encoded with the given charset, in chunks of at most `chunkSize` bytes.
+   */
+  def iterator(content: BufferedContent[?], chunkSize: Int, charset: Charset): Iterator[ByteBuffer] = {
+    checkChunkSize(chunkSize)
+    new ChunkIterator(content, chunkSize, charset)
+  }
+
+  /**
+   * Returns a publisher of the content encoded as UTF-8, in chunks of at most `chunkSize` bytes.
+   *
+   * Chunks are only rendered when requested by the subscriber. Every subscriber gets its own traversal of the content.
+   */
+  def publisher(content: BufferedContent[?], chunkSize: Int = DefaultChunkSize): Flow.Publisher[ByteBuffer] =
+    publisher(content, chunkSize, StandardCharsets.UTF_8)
+
+  /**
+   * Returns a publisher of the content encoded with the given charset, in chunks of at most `chunkSize` bytes.
+   */
+  def publisher(content: BufferedContent[?], chunkSize: Int, charset: Charset): Flow.Publisher[ByteBuffer] = {
+    checkChunkSize(chunkSize)
+    new Flow.Publisher[ByteBuffer] {
+      def subscribe(subscriber: Flow.Subscriber[? >: ByteBuffer]): Unit = {
+        if (subscriber == null) throw new NullPointerException("subscriber")
+        val subscription = new ChunkSubscription(subscriber, new ChunkIterator(content, chunkSize, charset))
+        subscriber.onSubscribe(subscription)
+      }
+    }
+  }
+
+  private def checkChunkSize(chunkSize: Int): Unit = {
+    if (chunkSize < MinChunkSize)
+      throw new IllegalArgumentException(s"chunkSize must be at least $MinChunkSize, but was $chunkSize")
+  }
+
+  private final class ChunkIterator(root: BufferedContent[?], chunkSize: Int, charset: Charset)
+      extends Iterator[ByteBuffer] {
+    private val ready    = new ArrayDeque[ByteBuffer]()
+    private val pending  = new ArrayDeque[Iterator[BufferedContent[?]]]()
+    private var finished = false
+    private val writing  = RenderListener.writing(root)
+
+    pending.push(Iterator.single(root))
+
+    private val writer = new EncodingWriter(charset, chunkSize) {
+      protected def emit(): Unit = {
+        bytes.flip()
+        ready.add(bytes)
+        bytes = ByteBuffer.allocate(chunkSize)
+      }
+    }
+
+    /**
+     * Renders the next leaf of the elements tree, depth first.
+     */
+    private def advance(): Unit = {
+      if (pending.isEmpty) {
+        writer.finish()
+        finished = true
+        if (writing ne null) writing.finish(writer.charsWritten)
+      } else if (!pending.peek().hasNext) {
+        pending.pop()
+      } else {
+        val node = pending.peek().next()
+        if (node.children.nonEmpty) pending.push(node.children.iterator) else node.writeContent(writer)
+      }
+    }
+
+    def hasNext: Boolean = {
+      if (ready.isEmpty && !finished) {
+        // The writing is only timed while chunks are rendered, not while they wait to be requested
+        if (writing ne null) writing.resume()
+        while (ready.isEmpty && !finished) advance()
+        if ((writing ne null) && !finished) writing.pause()
+      }
+      !ready.isEmpty
+    }
+
+    def next(): ByteBuffer = {
+      if (!hasNext) throw new NoSuchElementException("No more chunks")
+      ready.poll()
+    }
+  }
+
+  /**
+   * Emits chunks as they are requested. Demand may be signalled from any thread, including from within `onNext`; the
+   * work-in-progress counter guarantees that only one thread drains at a time, so signals are never concurrent.
+   */
+  private final class ChunkSubscription(subscriber: Flow.Subscriber[? >: ByteBuffer], chunks: Iterator[ByteBuffer])
+      extends Flow.Subscription {
+    private val requested         = new AtomicLong()
+    private val wip               = new AtomicInteger()
+    @volatile private var done    = false
+    @volatile private var invalid = false
+
+    def request(n: Long): Unit = {
+      if (n <= 0) {
+        invalid = true
+      } else {
+        var current = requested.get()
+        while (!requested.compareAndSet(current, if (current + n < 0) Long.MaxValue else current + n)) {
+          current = requested.get()
+        }
+      }
+      drain()
+    }
+
+    def cancel(): Unit = done = true
+
+    private def drain(): Unit = {
+      if (wip.getAndIncrement() == 0) {
+        var missed = 1
+        while (missed != 0) {
+          if (!done && invalid) {
+            done = true
+            subscriber.onError(new IllegalArgumentException("Requested a non-positive number of chunks"))
+          }
+          val demand  = requested.get()
+          var emitted = 0L
+          while (!done && emitted != demand) {
+            val chunk = nextChunk()
+            if (chunk ne null) {
+              try subscriber.onNext(chunk)
+              catch {
+                // A subscriber that throws from onNext must not be signalled again, so it is treated as cancelled
+                case _: Exception => done = true
+              }
+              emitted += 1
+            }
+          }
+          if (emitted != 0 && demand != Long.MaxValue) requested.addAndGet(-emitted)
+          missed = wip.addAndGet(-missed)
+        }
+      }
+    }
+
+    /**
+     * The next chunk, or null once there are no more chunks or producing them failed, which has then been signalled.
+     */
+    private def nextChunk(): ByteBuffer = {
+      val chunk =
+        try {
+          if (chunks.hasNext) chunks.next() else null
+        } catch {
+          case e: Exception =>
+            if (!done) {
+              done = true
+              subscriber.onError(e)
+            }
+            null
+        }
+      if ((chunk eq null) && !done) {
+        done = true
+        subscriber.onComplete()
+      }
+      chunk
+    }
+  }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.twirl.api
+
+import java.io.ByteArrayOutputStream
+import java.io.OutputStream
+import java.nio.ByteBuffer
+import java.nio.charset.Charset
+import java.nio.charset.StandardCharsets
+import java.util.NoSuchElementException
+import java.util.zip.Deflater
+import java.util.zip.DeflaterOutputStream
+import java.util.zip.GZIPOutputStream
+
+/**
+ * Renders content straight into a gzip or deflate compressed stream, without building its body first.
+ *
+ * The compressed stream is flushed after the elements selected by `flushAfter`, by default the flush points marked with
+ * `@flushPoint` in templates (see [[Format.flushPoint]]). Everything rendered before a flush point, like the head of a
+ * page, can then be decompressed and sent while the rest is rendered. Each flush costs a few bytes of output and resets
+ * nothing else, so the compression ratio is the same as compressing the whole body.
+ */
+object CompressedContent {
+
+  /**
+   * A compression of the content: the value of the `Content-Encoding` header, and the compression level.
+   */
+  final class Compression private (val contentEncoding: String, val level: Int) {
+    private[CompressedContent] def open(out: OutputStream): CompressedStream =
+      if (contentEncoding == "gzip") new GzipStream(out, level) else new ZlibStream(out, level)
+
+    override def toString: String = s"Compression($contentEncoding, $level)"
+  }
+
+  object Compression {
+
+    /**
+     * The gzip format, of the `gzip` content encoding.
+     */
+    def gzip(level: Int = Deflater.DEFAULT_COMPRESSION): Compression = new Compression("gzip", checkLevel(level))
+
+    /**
+     * The zlib format, of the `deflate` content encoding.
+     */
+    def deflate(level: Int = Deflater.DEFAULT_COMPRESSION): Compression = new Compression("deflate", checkLevel(level))
+
+    private def checkLevel(level: Int): Int = {
+      if (
+        level != Deflater.DEFAULT_COMPRESSION && (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION)
+      )
+        throw new IllegalArgumentException(s"Invalid compression level $level")
+      level
+    }
+  }
+
+  /**
+   * The default size of the compressed chunks, in bytes.
+   */
+  val DefaultChunkSize: Int = 8192
+
+  /**
+   * Whether the element is a flush point, as marked with `@flushPoint` in templates.
+   */
+  def isFlushPoint(element: BufferedContent[?]): Boolean = element.children eq FlushPointElements
+
+  /**
+   * Writes the content to the given OutputStream, encoded with the given charset and compressed, flushing the stream
+   * after every element selected by `flushAfter`. The stream is flushed at the end, but not closed.
+   */
+  def writeTo(
+      content: BufferedContent[?],
+      out: OutputStream,
+      compression: Compression = Compression.gzip(),
+      charset: Charset = StandardCharsets.UTF_8,
+      flushAfter: BufferedContent[?] => Boolean = isFlushPoint
+  ): Unit = {
+    val renderer = new Renderer(content, out, compression, charset, flushAfter)
+    try {
+      while (renderer.advance()) ()
+    } finally {
+      renderer.end()
+    }
+    out.flush()
+  }
+
+  /**
+   * Returns an iterator over the content encoded with the given charset and compressed, in chunks that end after every
+   * element selected by `flushAfter`, or once they reach `chunkSize` bytes.
+   *
+   * Chunks are only rendered when requested. The compressor is released once the last chunk is returned, or when it is
+   * garbage collected if the iterator is not consumed to the end.
+   */
+  def iterator(
+      content: BufferedContent[?],
+      compression: Compression = Compression.gzip(),
+      charset: Charset = StandardCharsets.UTF_8,
+      chunkSize: Int = DefaultChunkSize,
+      flushAfter: BufferedContent[?] => Boolean = isFlushPoint
+  ): Iterator[ByteBuffer] = {
+    if (chunkSize < ChunkedContent.MinChunkSize)
+      throw new IllegalArgumentException(
+        s"chunkSize must be at least ${ChunkedContent.MinChunkSize}, but was $chunkSize"
+      )
+    new ChunkIterator(content, compression, charset, chunkSize, flushAfter)
+  }
+
+  private val BufferSize = 8192
+
+  /**
+   * A compressing stream that flushes what it compressed so far when flushed, and whose compressor can be released
+   * without closing the underlying stream.
+   */
+  private sealed trait CompressedStream {
+    def stream: DeflaterOutputStream
+    def end(): Unit
+  }
+
+  private final class GzipStream(out: OutputStream, level: Int)
+      extends GZIPOutputStream(out, BufferSize, true)
+      with CompressedStream {
+    `def`.setLevel(level)
+    def stream: DeflaterOutputStream = this
+    def end(): Unit                  = `def`.end()
+  }
+
+  private final class ZlibStream(out: OutputStream, level: Int) extends CompressedStream {
+    private val deflater             = new Deflater(level)
+    val stream: DeflaterOutputStream = new DeflaterOutputStream(out, deflater, BufferSize, true)
+    def end(): Unit                  = deflater.end()
+  }
+
+  /**
+   * Renders the elements tree into the compressed stream one element at a time, depth first, flushing the compressed
+   * stream after the selected elements.
+   */
+  private final class Renderer(
+      root: BufferedContent[?],
+      out: OutputStream,
+      compression: Compression,
+      charset: Charset,
+      flushAfter: BufferedContent[?] => Boolean
+  ) {
+    private val compressed = compression.open(out)
+    private var nodes      = new Array[BufferedContent[?]](16)
+    private var iterators  = new Array[Iterator[BufferedContent[?]]](16)
+    private var depth      = 0
+    private var finished   = false
+    val writing            = RenderListener.writing(root)
+
+    private val writer = new EncodingWriter(charset, BufferSize) {
+      protected def emit(): Unit = {
+        compressed.stream.write(bytes.array(), bytes.arrayOffset(), bytes.position())
+        bytes.clear()
+      }
+    }
+
+    visit(root)
+
+    private def visit(element: BufferedContent[?]): Unit = {
+      if (element.children.isEmpty) {
+        element.writeContent(writer)
+        if (flushAfter(element)) flush()
+      } else {
+        if (depth == nodes.length) {
+          nodes = java.util.Arrays.copyOf[BufferedContent[?]](nodes, depth * 2)
+          iterators = java.util.Arrays.copyOf[Iterator[BufferedContent[?]]](iterators, depth * 2)
+        }
+        nodes(depth) = element
+        iterators(depth) = element.children.iterator
+        depth += 1
+      }
+    }
+
+    private def flush(): Unit = {
+      writer.drain()
+      compressed.stream.flush()
+    }
+
+    /**
+     * Renders the next element, and returns whether there is more to render.
+     */
+    def advance(): Boolean = {
+      if (depth > 0) {
+        val top = depth - 1
+        if (iterators(top).hasNext) {
+          visit(iterators(top).next())
+        } else {
+          val node = nodes(top)
+          nodes(top) = null
+          iterators(top) = null
+          depth = top
+          if (flushAfter(node)) flush()
+        }
+      } else if (!finished) {
+        writer.finish()
+        compressed.stream.finish()
+        finished = true
+        if (writing ne null) writing.finish(writer.charsWritten)
+      }
+      !finished
+    }
+
+    def end(): Unit = compressed.end()
+  }
+
+  private final class ChunkIterator(
+      root: BufferedContent[?],
+      compression: Compression,
+      charset: Charset,
+      chunkSize: Int,
+      flushAfter: BufferedContent[?] => Boolean
+  ) extends Iterator[ByteBuffer] {
+    private var flushed = false
+    private var more    = true
+
+    // Flushing again without new input writes nothing, which doesn't end the chunk
+    private val chunk = new ByteArrayOutputStream(chunkSize) {
+      override def flush(): Unit = flushed = size > 0
+    }
+
+    private val renderer = new Renderer(root, chunk, compression, charset, flushAfter)
+
+    def hasNext: Boolean = {
+      try {
+        if (more && !flushed && chunk.size < chunkSize) {
+          // The writing is only timed while chunks are rendered, not while they wait to be requested
+          val writing = renderer.writing
+          if (writing ne null) writing.resume()
+          while (more && !flushed && chunk.size < chunkSize) more = renderer.advance()
+          if ((writing ne null) && more) writing.pause()
+        }
+      } catch {
+        case e: Throwable =>
+          more = false
+          renderer.end()
+          throw e
+      }
+      if (!more) renderer.end()
+      chunk.size > 0
+    }
+
+    def next(): ByteBuffer = {
+      if (!hasNext) throw new NoSuchElementException("No more chunks")
+      val bytes = ByteBuffer.wrap(chunk.toByteArray)
+      chunk.reset()
+      flushed = false
+      bytes
+    }
+  }
+}
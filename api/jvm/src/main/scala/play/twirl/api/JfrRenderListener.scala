@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.twirl.api
+
+import jdk.jfr.Category
+import jdk.jfr.Description
+import jdk.jfr.EventType
+import jdk.jfr.Label
+import jdk.jfr.Name
+import jdk.jfr.StackTrace
+import jdk.jfr.Timespan
+import scala.annotation.meta.field
+
+/**
+ * Records the renderings of templates as `play.twirl.TemplateRender` JDK Flight Recorder events, and the writings of
+ * their content as `play.twirl.TemplateWrite` events. Register it with `RenderListener.register(JfrRenderListener)`.
+ * Events are only created while a recording has them enabled.
+ */
+object JfrRenderListener extends RenderListener {
+  private val renderType = EventType.getEventType(classOf[TemplateRenderEvent])
+  private val writeType  = EventType.getEventType(classOf[TemplateWriteEvent])
+
+  // Checked on the event types, so that no event is allocated while no recording has it enabled
+
+  def rendered(template: String, durationNanos: Long): Unit = {
+    if (renderType.isEnabled) {
+      val event = new TemplateRenderEvent
+      event.template = template
+      event.renderDuration = durationNanos
+      event.commit()
+    }
+  }
+
+  override def written(template: String, durationNanos: Long, nodeCount: Int, outputLength: Long): Unit = {
+    if (writeType.isEnabled) {
+      val event = new TemplateWriteEvent
+      event.template = template
+      event.writeDuration = durationNanos
+      event.nodeCount = nodeCount
+      event.outputLength = outputLength
+      event.commit()
+    }
+  }
+}
+
+@Name("play.twirl.TemplateRender")
+@Label("Template Render")
+@Category(Array("Play", "Twirl"))
+@Description("A template built its content")
+@StackTrace(false)
+private[api] final class TemplateRenderEvent extends jdk.jfr.Event {
+  @(Label @field)("Template")
+  var template: String = null
+
+  @(Label @field)("Render Duration")
+  @(Timespan @field)(Timespan.NANOSECONDS)
+  var renderDuration: Long = 0L
+}
+
+@Name("play.twirl.TemplateWrite")
+@Label("Template Write")
+@Category(Array("Play", "Twirl"))
+@Description("The content of a template was written")
+@StackTrace(false)
+private[api] final class TemplateWriteEvent extends jdk.jfr.Event {
+  @(Label @field)("Template")
+  var template: String = null
+
+  @(Label @field)("Write Duration")
+  @(Timespan @field)(Timespan.NANOSECONDS)
+  var writeDuration: Long = 0L
+
+  @(Label @field)("Node Count")
+  var nodeCount: Int = 0
+
+  @(Label @field)("Output Length")
+  @(Description @field)("The number of chars written")
+  var outputLength: Long = 0L
+}
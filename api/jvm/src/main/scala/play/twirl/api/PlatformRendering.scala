@@ -0,0 +1,21 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.twirl.api
+
+import play.twirl.api.utils.Escaper
+
+/**
+ * How content is rendered on the JVM: the body is appended to a StringBuilder allocated once with the expected length.
+ */
+private[api] object PlatformRendering {
+
+  def body(content: BufferedContent[?]): String = {
+    val builder = new StringBuilder(content.estimatedLength)
+    content.buildBody(builder)
+    builder.toString
+  }
+
+  def escapeHtml(text: String): String = Escaper.Html.escape(text)
+}
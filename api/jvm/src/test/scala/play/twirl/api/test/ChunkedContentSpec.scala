@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.twirl.api.test
+
+import java.io.ByteArrayOutputStream
+import java.nio.ByteBuffer
+import java.nio.charset.StandardCharsets
+import java.util.concurrent.Flow
+import play.twirl.api._
+import scala.collection.immutable
+import scala.collection.mutable.ListBuffer
+import org.scalatest.matchers.must.Matchers
+import org.scalatest.wordspec.AnyWordSpec
+
+class ChunkedContentSpec extends AnyWordSpec with Matchers {
+
+  val content: Html = HtmlFormat.fill(
+    immutable.Seq(
+      Html("<head><title>"),
+      HtmlFormat.escape("Fish & Chips"),
+      Html("</title></head><body>"),
+      HtmlFormat.fill(
+        (1 to 50).map(i => HtmlFormat.fill(immutable.Seq(Html("<p>"), HtmlFormat.escape(s"<$i> ü"), Html("</p>"))))
+      ),
+      Html("</body>")
+    )
+  )
+
+  def concat(chunks: Iterator[ByteBuffer]): String = {
+    val out = new ByteArrayOutputStream()
+    chunks.foreach { chunk => out.write(chunk.array(), chunk.arrayOffset() + chunk.position(), chunk.remaining()) }
+    new String(out.toByteArray, StandardCharsets.UTF_8)
+  }
+
+  "ChunkedContent.iterator" should {
+    "produce the same content as body" in {
+      concat(ChunkedContent.iterator(content)) mustEqual content.body
+    }
+
+    "produce chunks bounded by the chunk size" in {
+      val chunks = ChunkedContent.iterator(content, 16).toList
+      chunks.size must be > 1
+      all(chunks.map(_.remaining())) must be <= 16
+      concat(chunks.iterator) mustEqual content.body
+    }
+
+    "encode surrogate pairs split across chunks" in {
+      val emoji  = Html("😀" * 20)
+      val chunks = ChunkedContent.iterator(emoji, 17).toList
+      all(chunks.map(_.remaining())) must be <= 17
+      concat(chunks.iterator) mustEqual emoji.body
+    }
+
+    "report the writing of the content of a template once its last chunk is produced" in {
+      var writings = List.empty[(Int, Long)]
+      val listener = new RenderListener {
+        def rendered(template: String, durationNanos: Long): Unit = ()
+        override def written(template: String, durationNanos: Long, nodeCount: Int, outputLength: Long): Unit =
+          if (template == "spec.chunked") synchronized(writings ::= ((nodeCount, outputLength)))
+      }
+      val template = BaseScalaTemplate[Html, Format[Html]](HtmlFormat)
+      RenderListener.register(listener)
+      try {
+        val page   = template._endRender_("spec.chunked", template._startRender_(), content)
+        val chunks = ChunkedContent.iterator(page, 64)
+        chunks.next()
+        writings mustBe Nil
+        concat(chunks)
+      } finally RenderListener.unregister(listener)
+      writings mustBe List((206, content.body.length.toLong))
+    }
+
+    "produce no chunks for empty content" in {
+      ChunkedContent.iterator(HtmlFormat.empty).hasNext mustBe false
+    }
+
+    "reject a chunk size that is too small" in {
+      an[IllegalArgumentException] must be thrownBy ChunkedContent.iterator(content, ChunkedContent.MinChunkSize - 1)
+    }
+  }
+
+  "ChunkedContent.publisher" should {
+    class RecordingSubscriber(initialRequest: Long) extends Flow.Subscriber[ByteBuffer] {
+      val chunks                          = ListBuffer.empty[ByteBuffer]
+      var completed                       = false
+      var error: Throwable                = null
+      var subscription: Flow.Subscription = null
+      def onSubscribe(s: Flow.Subscription): Unit = {
+        subscription = s
+        if (initialRequest > 0) s.request(initialRequest)
+      }
+      def onNext(item: ByteBuffer): Unit = chunks += item
+      def onError(t: Throwable): Unit    = error = t
+      def onComplete(): Unit             = completed = true
+    }
+
+    "publish all chunks when requested" in {
+      val subscriber = new RecordingSubscriber(Long.MaxValue)
+      ChunkedContent.publisher(content, 32).subscribe(subscriber)
+      subscriber.completed mustBe true
+      concat(subscriber.chunks.iterator) mustEqual content.body
+    }
+
+    "only publish as many chunks as requested" in {
+      val subscriber = new RecordingSubscriber(2)
+      ChunkedContent.publisher(content, 32).subscribe(subscriber)
+      subscriber.chunks.size mustBe 2
+      subscriber.completed mustBe false
+      subscriber.subscription.request(Long.MaxValue)
+      subscriber.completed mustBe true
+      concat(subscriber.chunks.iterator) mustEqual content.body
+    }
+
+    "stop publishing when cancelled" in {
+      val subscriber = new RecordingSubscriber(1)
+      ChunkedContent.publisher(content, 32).subscribe(subscriber)
+      subscriber.subscription.cancel()
+      subscriber.subscription.request(10)
+      subscriber.chunks.size mustBe 1
+      subscriber.completed mustBe false
+    }
+
+    "signal an error for a non-positive request" in {
+      val subscriber = new RecordingSubscriber(0)
+      ChunkedContent.publisher(content).subscribe(subscriber)
+      subscriber.subscription.request(0)
+      subscriber.error mustBe an[IllegalArgumentException]
+    }
+
+    "cancel rather than signal an error when the subscriber throws from onNext" in {
+      val subscriber = new RecordingSubscriber(Long.MaxValue) {
+        override def onNext(item: ByteBuffer): Unit = {
+          super.onNext(item)
+          throw new IllegalStateException("Subscriber failed")
+        }
+      }
+      ChunkedContent.publisher(content, 32).subscribe(subscriber)
+      subscriber.subscription.request(10)
+      subscriber.chunks.size mustBe 1
+      subscriber.error mustBe null
+      subscriber.completed mustBe false
+    }
+  }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.twirl.api.test
+
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.InputStream
+import java.nio.ByteBuffer
+import java.nio.charset.StandardCharsets
+import java.util.zip.GZIPInputStream
+import java.util.zip.Inflater
+import java.util.zip.InflaterInputStream
+import play.twirl.api._
+import play.twirl.api.CompressedContent.Compression
+import scala.collection.immutable
+import scala.collection.mutable.ListBuffer
+import org.scalatest.matchers.must.Matchers
+import org.scalatest.wordspec.AnyWordSpec
+
+class CompressedContentSpec extends AnyWordSpec with Matchers {
+
+  val template = BaseScalaTemplate[Html, Format[Html]](HtmlFormat)
+
+  val head: Html = Html("<head><title>Fish &amp; Chips</title></head>")
+
+  val content: Html = HtmlFormat.fill(
+    immutable.Seq(
+      Html("<html>"),
+      head,
+      template._display_(TwirlFeatureImports.flushPoint),
+      Html("<body>"),
+      HtmlFormat.fill(
+        (1 to 2000).map(i => HtmlFormat.fill(immutable.Seq(Html("<p>"), HtmlFormat.escape(s"<$i> ü"), Html("</p>"))))
+      ),
+      Html("</body></html>")
+    )
+  )
+
+  def concat(chunks: Iterator[ByteBuffer]): Array[Byte] = {
+    val out = new ByteArrayOutputStream()
+    chunks.foreach { chunk => out.write(chunk.array(), chunk.arrayOffset() + chunk.position(), chunk.remaining()) }
+    out.toByteArray
+  }
+
+  def decompress(in: InputStream): String = {
+    val out    = new ByteArrayOutputStream()
+    val buffer = new Array[Byte](4096)
+    var n      = in.read(buffer)
+    while (n >= 0) {
+      out.write(buffer, 0, n)
+      n = in.read(buffer)
+    }
+    new String(out.toByteArray, StandardCharsets.UTF_8)
+  }
+
+  def gunzip(bytes: Array[Byte]): String  = decompress(new GZIPInputStream(new ByteArrayInputStream(bytes)))
+  def inflate(bytes: Array[Byte]): String = decompress(new InflaterInputStream(new ByteArrayInputStream(bytes)))
+
+  /**
+   * Inflates as much of an unfinished zlib stream as possible.
+   */
+  def inflatePrefix(bytes: Array[Byte]): String = {
+    val inflater = new Inflater()
+    inflater.setInput(bytes)
+    val out    = new Array[Byte](1 << 20)
+    val length = inflater.inflate(out)
+    inflater.end()
+    new String(out, 0, length, StandardCharsets.UTF_8)
+  }
+
+  "CompressedContent.writeTo" should {
+    "write the body compressed with gzip" in {
+      val out = new ByteArrayOutputStream()
+      CompressedContent.writeTo(content, out)
+      gunzip(out.toByteArray) mustEqual content.body
+      out.size must be < content.body.length / 4
+    }
+
+    "write the body compressed with deflate" in {
+      val out = new ByteArrayOutputStream()
+      CompressedContent.writeTo(content, out, Compression.deflate(9))
+      inflate(out.toByteArray) mustEqual content.body
+    }
+
+    "flush everything rendered before a flush point" in {
+      val flushes = ListBuffer.empty[Array[Byte]]
+      val out = new ByteArrayOutputStream() {
+        override def flush(): Unit = flushes += toByteArray
+      }
+      CompressedContent.writeTo(content, out, Compression.deflate())
+      flushes.size mustBe 2
+      inflatePrefix(flushes.head) mustEqual "<html>" + head.body
+      inflate(flushes.last) mustEqual content.body
+    }
+
+    "flush after the selected elements" in {
+      val flushes = ListBuffer.empty[Array[Byte]]
+      val out = new ByteArrayOutputStream() {
+        override def flush(): Unit = flushes += toByteArray
+      }
+      CompressedContent.writeTo(content, out, Compression.deflate(), flushAfter = _ eq head)
+      flushes.size mustBe 2
+      inflatePrefix(flushes.head) mustEqual "<html>" + head.body
+    }
+  }
+
+  "CompressedContent.iterator" should {
+    "produce the compressed body" in {
+      gunzip(concat(CompressedContent.iterator(content))) mustEqual content.body
+      inflate(concat(CompressedContent.iterator(content, Compression.deflate(1)))) mustEqual content.body
+    }
+
+    "end a chunk at every flush point" in {
+      val chunks = CompressedContent.iterator(content, Compression.deflate()).toList
+      inflatePrefix(concat(chunks.take(1).iterator)) mustEqual "<html>" + head.body
+    }
+
+    "end a chunk once it reaches the chunk size" in {
+      val random  = new scala.util.Random(42)
+      val content = HtmlFormat.fill((1 to 200).map(_ => HtmlFormat.escape(random.alphanumeric.take(1000).mkString)))
+      val chunks  = CompressedContent.iterator(content, chunkSize = 64).toList
+      chunks.size must be > 2
+      gunzip(concat(chunks.iterator)) mustEqual content.body
+    }
+
+    "report the writing of the content of a template once its last chunk is produced" in {
+      var writings = List.empty[(Int, Long)]
+      val listener = new RenderListener {
+        def rendered(template: String, durationNanos: Long): Unit = ()
+        override def written(template: String, durationNanos: Long, nodeCount: Int, outputLength: Long): Unit =
+          if (template == "spec.compressed") synchronized(writings ::= ((nodeCount, outputLength)))
+      }
+      RenderListener.register(listener)
+      try {
+        val page   = template._endRender_("spec.compressed", template._startRender_(), content)
+        val chunks = CompressedContent.iterator(page)
+        chunks.next()
+        writings mustBe Nil
+        chunks.foreach(_ => ())
+      } finally RenderListener.unregister(listener)
+      writings mustBe List((8007, content.body.length.toLong))
+    }
+
+    "produce a compressed empty body for empty content" in {
+      gunzip(concat(CompressedContent.iterator(HtmlFormat.empty))) mustBe empty
+    }
+
+    "reject a chunk size that is too small" in {
+      an[IllegalArgumentException] must be thrownBy CompressedContent.iterator(content, chunkSize = 1)
+    }
+  }
+
+  "CompressedContent.Compression" should {
+    "reject invalid levels" in {
+      an[IllegalArgumentException] must be thrownBy Compression.gzip(10)
+      Compression.deflate(0).contentEncoding mustBe "deflate"
+    }
+  }
+
+  "A flush point" should {
+    "render as nothing" in {
+      val flushPoint = template._display_(TwirlFeatureImports.flushPoint)
+      flushPoint.body mustBe empty
+      CompressedContent.isFlushPoint(flushPoint) mustBe true
+      CompressedContent.isFlushPoint(HtmlFormat.empty) mustBe false
+    }
+  }
+}
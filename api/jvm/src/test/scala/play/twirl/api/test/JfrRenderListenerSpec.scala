@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.twirl.api.test
+
+import java.nio.file.Files
+import jdk.jfr.Recording
+import jdk.jfr.consumer.RecordingFile
+import play.twirl.api._
+import scala.collection.immutable
+import scala.jdk.CollectionConverters._
+import org.scalatest.matchers.must.Matchers
+import org.scalatest.wordspec.AnyWordSpec
+
+class JfrRenderListenerSpec extends AnyWordSpec with Matchers {
+
+  val template = BaseScalaTemplate[Html, Format[Html]](HtmlFormat)
+
+  "JfrRenderListener" should {
+    "record renderings and writings as flight recorder events" in {
+      val file      = Files.createTempFile("twirl", ".jfr")
+      val recording = new Recording()
+      recording.enable("play.twirl.TemplateRender")
+      recording.enable("play.twirl.TemplateWrite")
+      recording.start()
+      RenderListener.register(JfrRenderListener)
+      try {
+        val rendered = HtmlFormat.fill(immutable.Seq(Html("<p>"), HtmlFormat.escape("<jfr>"), Html("</p>")))
+        template._endRender_("spec.jfr", template._startRender_(), rendered).body
+      } finally RenderListener.unregister(JfrRenderListener)
+      recording.stop()
+      recording.dump(file)
+      recording.close()
+
+      val events = RecordingFile.readAllEvents(file).asScala.filter(_.getString("template") == "spec.jfr")
+      Files.delete(file)
+      events.map(_.getEventType.getName) mustBe Seq("play.twirl.TemplateRender", "play.twirl.TemplateWrite")
+      events.head.getLong("renderDuration") must be >= 0L
+      events.last.getLong("writeDuration") must be >= 0L
+      events.last.getInt("nodeCount") mustBe 4
+      events.last.getLong("outputLength") mustBe "<p>&lt;jfr&gt;</p>".length
+    }
+  }
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.twirl.api.utils
+
+import scala.collection.immutable
+
+/**
+ * An immutable sequence backed by an array of references, standing in for the `immutable.ArraySeq` of Scala 2.13, which
+ * Scala 2.12 doesn't have.
+ */
+private[twirl] final class ImmutableArraySeq[+A] private (array: Array[AnyRef])
+    extends scala.collection.AbstractSeq[A]
+    with immutable.IndexedSeq[A] {
+  def length: Int = array.length
+
+  def apply(i: Int): A = array(i).asInstanceOf[A]
+}
+
+private[twirl] object ImmutableArraySeq {
+
+  /**
+   * Copies the elements into an array.
+   */
+  def from[A](elements: TraversableOnce[A]): immutable.IndexedSeq[A] =
+    new ImmutableArraySeq[A](elements.toArray[Any].asInstanceOf[Array[AnyRef]])
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.twirl.api.utils
+
+private[twirl] object StringBuilders {
+
+  /**
+   * Appends the chars of text from start (inclusive) to end (exclusive) in one go.
+   *
+   * Scala 2.12 doesn't expose the java.lang.StringBuilder underlying a StringBuilder, so a range of the text is copied
+   * out with substring, which is still a bulk copy rather than one append per char. Runs that are too short to be worth
+   * the substring, as in text that needs a lot of escaping, are appended char by char.
+   */
+  def appendRange(builder: StringBuilder, text: String, start: Int, end: Int): Unit = {
+    if (start == 0 && end == text.length) builder.append(text)
+    else if (end - start > ShortRun) builder.append(text.substring(start, end))
+    else {
+      var i = start
+      while (i < end) {
+        builder.append(text.charAt(i))
+        i += 1
+      }
+    }
+  }
+
+  /**
+   * The longest run that is appended char by char.
+   */
+  private final val ShortRun = 8
+}
@@ -12,13 +12,33 @@ import scala.reflect.ClassTag
 // The exotic name $twirl__format is on purpose to avoid clashes with user defined vars in templates (#112)
 case class BaseScalaTemplate[T <: Appendable[T], F <: Format[T]]($twirl__format: F) {
   // The overloaded methods are here for speed. The compiled templates
-  // can take advantage of them for a 12% performance boost
+  // can take advantage of them for a 12% performance boost. Primitives have their own
+  // overloads so that they are neither boxed nor escaped character by character
   def _display_(x: AnyVal): T            = $twirl__format.escape(x.toString)
+  def _display_(x: Int): T               = $twirl__format.number(x.toLong)
+  def _display_(x: Long): T              = $twirl__format.number(x)
+  def _display_(x: Double): T            = $twirl__format.number(x)
+  def _display_(x: Float): T             = $twirl__format.escape(java.lang.Float.toString(x))
+  def _display_(x: Boolean): T           = $twirl__format.raw(Formats.booleanText(x))
+  def _display_(x: Char): T              = $twirl__format.escape(Formats.charString(x))
   def _display_(x: String): T            = if (x eq null) $twirl__format.empty else $twirl__format.escape(x)
   def _display_(x: Unit): T              = $twirl__format.empty
   def _display_(x: scala.xml.NodeSeq): T = if (x eq null) $twirl__format.empty else $twirl__format.raw(x.toString())
   def _display_(x: T): T                 = if (x eq null) $twirl__format.empty else x
 
+  // Content whose parts are all known to be of type T, such as static text and displayed values, is filled directly,
+  // without going through the runtime type matching of `_display_(o: Any)`
+  def _fill_(elements: T*): T = $twirl__format.fill(elements)
+
+  // Compiled templates report their renderings to the registered render listeners. When none is registered, this costs
+  // a read of the listeners and a comparison, without allocating
+  def _startRender_(): Long = RenderListener.startTime()
+
+  def _endRender_(template: String, start: Long, result: T): T = {
+    if (start != RenderListener.NotInstrumented) RenderListener.rendered(template, start, result)
+    result
+  }
+
   def _display_(o: Any)(implicit m: ClassTag[T]): T = {
     o match {
       case escaped if escaped != null && m.runtimeClass.isInstance(escaped) => escaped.asInstanceOf[T]
@@ -31,15 +51,23 @@ case class BaseScalaTemplate[T <: Appendable[T], F <: Format[T]]($twirl__format:
           case Some(v) => _display_(v)
           case _       => $twirl__format.empty
         }
+      case _: TwirlFeatureImports.FlushPoint          => $twirl__format.flushPoint
+      case fragment: TwirlFeatureImports.LazyFragment => $twirl__format.lazyFragment(_display_(fragment.content()))
+      case fragment: TwirlFeatureImports.MemoizedFragment =>
+        $twirl__format.memoizedFragment(fragment.cache, fragment.key)(_display_(fragment.content()))
       case xml: scala.xml.NodeSeq      => $twirl__format.raw(xml.toString())
-      case escapeds: immutable.Seq[?]  => $twirl__format.fill(escapeds.map(_display_))
-      case escapeds: IterableOnce[?]   => $twirl__format.fill(escapeds.iterator.map(_display_).toList)
-      case escapeds: Array[?]          => $twirl__format.fill(escapeds.view.map(_display_).toList)
-      case escapeds: java.util.List[?] =>
-        $twirl__format.fill(escapeds.asScala.map(_display_).toList)
+      case escapeds: IterableOnce[?]   => $twirl__format.fill(displayAll(escapeds.iterator))
+      case escapeds: Array[?]          => $twirl__format.fill(displayAll(escapeds.iterator))
+      case escapeds: java.util.List[?] => $twirl__format.fill(displayAll(escapeds.asScala.iterator))
       case string: String => $twirl__format.escape(string)
       case v if v != null => $twirl__format.escape(v.toString)
       case _              => $twirl__format.empty
     }
   }
+
+  /**
+   * Displays the elements into an array, which takes less memory than a list and is faster to walk when rendering.
+   */
+  private def displayAll(escapeds: Iterator[Any])(implicit m: ClassTag[T]): immutable.Seq[T] =
+    immutable.ArraySeq.unsafeWrapArray(escapeds.map(_display_).toArray)
 }
@@ -0,0 +1,15 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.twirl.api.utils
+
+private[twirl] object StringBuilders {
+
+  /**
+   * Appends the chars of text from start (inclusive) to end (exclusive) in one go.
+   */
+  def appendRange(builder: StringBuilder, text: String, start: Int, end: Int): Unit = {
+    builder.underlying.append(text, start, end)
+  }
+}
@@ -4,6 +4,9 @@
 
 package play.twirl.api
 
+import java.io.OutputStream
+import java.io.Writer
+import java.nio.charset.Charset
 import scala.collection.immutable
 
 /**
@@ -31,7 +34,7 @@ trait Content {
  * @param elements
  *   Sub elements to traverse when creating the resultant string
  * @param text
- *   Formatted content
+ *   Formatted content, or null for a number leaf
  * @tparam A
  *   self-type
  */
@@ -40,21 +43,163 @@ abstract class BufferedContent[A <: BufferedContent[A]](
     protected val text: String
 ) extends Appendable[A]
     with Content { this: A =>
+
+  /**
+   * Appends the content to the builder. The tree of elements is walked with an explicit stack rather than by recursion,
+   * so that deeply nested content can't overflow the thread stack.
+   */
   protected def buildString(builder: StringBuilder): Unit = {
-    if (!elements.isEmpty) {
-      elements.foreach { e => e.buildString(builder) }
+    if (elements.isEmpty) {
+      buildLeaf(builder)
     } else {
-      builder.append(text)
+      val leaves = new BufferedContent.Leaves(this)
+      while (leaves.hasNext) leaves.next().buildLeaf(builder)
     }
   }
 
+  /**
+   * Appends the text (or the number) of a leaf to the builder. All the leaves of a tree are appended from the same call
+   * site, so formats that escape text as they write it should do it here rather than in a subclass for escaped leaves,
+   * which would make the call site polymorphic.
+   */
+  protected def buildLeaf(builder: StringBuilder): Unit = {
+    if (text ne null) builder.append(text)
+    else builder.append(number)
+  }
+
+  /**
+   * The text (or the number) of a leaf, escaped like buildLeaf escapes it. On Scala.js, bodies are built by joining the
+   * texts of the leaves rather than by appending them to a StringBuilder, so formats that override buildLeaf should
+   * override this too.
+   */
+  protected def leafText: String = if (text ne null) text else java.lang.Long.toString(number)
+
+  private[api] final def buildBody(builder: StringBuilder): Unit = buildString(builder)
+
+  private[api] final def writeContent(writer: Writer): Unit = writeString(writer)
+
+  private[api] final def leafString: String = leafText
+
+  /**
+   * The expected length of the content, or -1 until it is computed.
+   */
+  private var lengthEstimate = -1
+
+  /**
+   * The expected length of the content, so that its body can be built in a buffer allocated once. It is computed once,
+   * from the leaves up, and cached in each element. Concurrent renderings may compute it twice, with the same result.
+   */
+  private[api] final def estimatedLength: Int = {
+    if (lengthEstimate < 0) {
+      if (elements.isEmpty) {
+        lengthEstimate = textLength
+      } else {
+        BufferedContent.estimateLength(this)
+      }
+    }
+    lengthEstimate
+  }
+
+  private[api] final def hasEstimatedLength: Boolean = lengthEstimate >= 0
+
+  /**
+   * The name of the template that rendered this content while render listeners were registered, otherwise null.
+   */
+  private[api] var renderedBy: String = null
+
+  /**
+   * The expected length of the text (or the number) of a leaf. Formats that escape text as they write it should add an
+   * allowance for the escaping.
+   */
+  protected def textLength: Int = if (text ne null) text.length else BufferedContent.digits(number)
+
+  /**
+   * The sub elements of this content, empty if this is a leaf.
+   */
+  private[api] def children: immutable.Seq[BufferedContent[?]] = elements
+
+  /**
+   * The number of a number leaf, which has null text. It is appended as digits without creating an intermediate String.
+   */
+  protected def number: Long = 0L
+
+  /**
+   * The UTF-8 encoding of text, if the text is static and was encoded ahead of time, otherwise null.
+   */
+  protected def utf8: Array[Byte] = null
+
+  /**
+   * Same as buildString, but writes straight to the writer.
+   */
+  protected def writeString(writer: Writer): Unit = {
+    if (elements.isEmpty) {
+      writeLeaf(writer)
+    } else {
+      val leaves = new BufferedContent.Leaves(this)
+      while (leaves.hasNext) leaves.next().writeLeaf(writer)
+    }
+  }
+
+  /**
+   * Same as buildLeaf, but writes straight to the writer.
+   */
+  protected def writeLeaf(writer: Writer): Unit = writeText(writer)
+
+  /**
+   * Writes text (or the number) as it is, copying its pre-encoded bytes when the writer encodes to UTF-8.
+   */
+  protected final def writeText(writer: Writer): Unit = {
+    val encoded = utf8
+    if (text eq null) writer.write(java.lang.Long.toString(number))
+    else
+      writer match {
+        case encoding: EncodingWriter if (encoded ne null) && encoding.acceptsUtf8 =>
+          encoding.writeEncoded(text, encoded)
+        case _ => writer.write(text)
+      }
+  }
+
+  /**
+   * Writes the content to the given Writer by walking the elements directly, without materialising the body as a String
+   * first. The writer is neither flushed nor closed.
+   */
+  def writeTo(writer: Writer): Unit = {
+    val writing = RenderListener.writing(this)
+    if (writing eq null) {
+      writeString(writer)
+    } else {
+      val counting = new RenderListener.CountingWriter(writer)
+      writeString(counting)
+      writing.finish(counting.count)
+    }
+  }
+
+  /**
+   * Writes the content to the given OutputStream, encoded with the given charset. The stream is flushed, but not
+   * closed.
+   */
+  def writeTo(out: OutputStream, charset: Charset): Unit = {
+    val writing = RenderListener.writing(this)
+    val writer = new EncodingWriter(charset, 8192) {
+      protected def emit(): Unit = {
+        out.write(bytes.array(), bytes.arrayOffset(), bytes.position())
+        bytes.clear()
+      }
+    }
+    writeString(writer)
+    writer.finish()
+    out.flush()
+    if (writing ne null) writing.finish(writer.charsWritten)
+  }
+
   /**
    * This should only ever be called at the top level element to avoid unneeded memory allocation.
    */
   private lazy val builtBody = {
-    val builder = new StringBuilder()
-    buildString(builder)
-    builder.toString
+    val writing = RenderListener.writing(this)
+    val body    = PlatformRendering.body(this)
+    if (writing ne null) writing.finish(body.length)
+    body
   }
 
   override def toString = builtBody
@@ -69,3 +214,132 @@ abstract class BufferedContent[A <: BufferedContent[A]](
 
   override def hashCode(): Int = this.getClass.hashCode() + body.hashCode()
 }
+
+private[api] object BufferedContent {
+
+  /**
+   * Walks the leaves of a tree of content in order, keeping an iterator per level of the tree in an explicit stack.
+   */
+  final class Leaves(root: BufferedContent[?]) {
+    private var iterators                = new Array[Iterator[BufferedContent[?]]](16)
+    private var depth                    = 0
+    private var leaf: BufferedContent[?] = null
+    private var ready                    = false
+
+    push(root.children)
+
+    private def push(elements: immutable.Seq[BufferedContent[?]]): Unit = {
+      if (depth == iterators.length)
+        iterators = java.util.Arrays.copyOf[Iterator[BufferedContent[?]]](iterators, depth * 2)
+      iterators(depth) = elements.iterator
+      depth += 1
+    }
+
+    def hasNext: Boolean = {
+      while (!ready && depth > 0) {
+        val iterator = iterators(depth - 1)
+        if (iterator.hasNext) {
+          val element = iterator.next()
+          // A null element is returned as a leaf, so that it fails where it is used, as it always has
+          if ((element eq null) || element.children.isEmpty) {
+            leaf = element
+            ready = true
+          } else {
+            push(element.children)
+          }
+        } else {
+          depth -= 1
+          iterators(depth) = null
+        }
+      }
+      ready
+    }
+
+    def next(): BufferedContent[?] = {
+      if (!hasNext) throw new NoSuchElementException("No more leaves")
+      ready = false
+      leaf
+    }
+  }
+
+  /**
+   * Computes the length estimate of the root and of the elements below it that don't have one yet, from the leaves up,
+   * keeping the nodes being summed in an explicit stack.
+   */
+  def estimateLength(root: BufferedContent[?]): Int = {
+    var nodes     = new Array[BufferedContent[?]](16)
+    var iterators = new Array[Iterator[BufferedContent[?]]](16)
+    var sums      = new Array[Long](16)
+    nodes(0) = root
+    iterators(0) = root.children.iterator
+    var depth    = 1
+    var estimate = 0
+    while (depth > 0) {
+      val top = depth - 1
+      if (iterators(top).hasNext) {
+        val element = iterators(top).next()
+        if (element.children.isEmpty || element.hasEstimatedLength) {
+          sums(top) += element.estimatedLength
+        } else {
+          if (depth == nodes.length) {
+            nodes = java.util.Arrays.copyOf[BufferedContent[?]](nodes, depth * 2)
+            iterators = java.util.Arrays.copyOf[Iterator[BufferedContent[?]]](iterators, depth * 2)
+            sums = java.util.Arrays.copyOf(sums, depth * 2)
+          }
+          nodes(depth) = element
+          iterators(depth) = element.children.iterator
+          sums(depth) = 0L
+          depth += 1
+        }
+      } else {
+        estimate = math.min(sums(top), Int.MaxValue - 8L).toInt
+        nodes(top).lengthEstimate = estimate
+        nodes(top) = null
+        iterators(top) = null
+        depth = top
+        if (top > 0) sums(top - 1) += estimate
+      }
+    }
+    estimate
+  }
+
+  /**
+   * The number of elements of the tree, the root included.
+   */
+  def countNodes(root: BufferedContent[?]): Int = {
+    var iterators = new Array[Iterator[BufferedContent[?]]](16)
+    iterators(0) = root.children.iterator
+    var depth = 1
+    var count = 1
+    while (depth > 0) {
+      val iterator = iterators(depth - 1)
+      if (iterator.hasNext) {
+        val element = iterator.next()
+        count += 1
+        if ((element ne null) && element.children.nonEmpty) {
+          if (depth == iterators.length)
+            iterators = java.util.Arrays.copyOf[Iterator[BufferedContent[?]]](iterators, depth * 2)
+          iterators(depth) = element.children.iterator
+          depth += 1
+        }
+      } else {
+        depth -= 1
+        iterators(depth) = null
+      }
+    }
+    count
+  }
+
+  /**
+   * The number of chars of the decimal representation of the value.
+   */
+  def digits(value: Long): Int = {
+    var length    = if (value < 0) 2 else 1
+    var remaining = math.abs(value / 10)
+    while (remaining > 0) {
+      length += 1
+      remaining /= 10
+    }
+    length
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.twirl.api
+
+import java.io.Writer
+import java.nio.ByteBuffer
+import java.nio.CharBuffer
+import java.nio.charset.Charset
+import java.nio.charset.CodingErrorAction
+import java.nio.charset.StandardCharsets
+
+/**
+ * A Writer that encodes into a fixed size byte buffer, and that also accepts text which was encoded to UTF-8 ahead of
+ * time (see [[StaticText]]), copying those bytes as they are rather than encoding the text again.
+ *
+ * Whenever the byte buffer is full it is handed to `emit`, which must leave `bytes` ready to be written to again.
+ */
+private[api] abstract class EncodingWriter(charset: Charset, bufferSize: Int) extends Writer {
+  private val encoder = charset
+    .newEncoder()
+    .onMalformedInput(CodingErrorAction.REPLACE)
+    .onUnmappableCharacter(CodingErrorAction.REPLACE)
+  private val chars   = CharBuffer.allocate(bufferSize)
+  protected var bytes = ByteBuffer.allocate(bufferSize)
+
+  /**
+   * Whether bytes encoded to UTF-8 ahead of time can be written as they are.
+   */
+  val acceptsUtf8: Boolean = charset == StandardCharsets.UTF_8
+
+  /**
+   * The number of chars written so far, counting those of pre-encoded text.
+   */
+  var charsWritten = 0L
+
+  protected def emit(): Unit
+
+  def write(cbuf: Array[Char], off: Int, len: Int): Unit = {
+    charsWritten += len
+    var i = off
+    while (i < off + len) {
+      val n = math.min(chars.remaining, off + len - i)
+      chars.put(cbuf, i, n)
+      i += n
+      if (!chars.hasRemaining) encode(endOfInput = false)
+    }
+  }
+
+  override def write(str: String, off: Int, len: Int): Unit = {
+    charsWritten += len
+    var i = off
+    while (i < off + len) {
+      val n = math.min(chars.remaining, off + len - i)
+      chars.put(str, i, i + n)
+      i += n
+      if (!chars.hasRemaining) encode(endOfInput = false)
+    }
+  }
+
+  /**
+   * Writes text whose bytes are already encoded with the charset of this writer. While the high surrogate of a pair is
+   * still pending from earlier writes, the text is encoded like any other, so that the pair is completed in order.
+   */
+  def writeEncoded(text: String, encoded: Array[Byte]): Unit = {
+    encode(endOfInput = false)
+    if (chars.position() > 0) write(text)
+    else {
+      charsWritten += text.length
+      writeBytes(encoded)
+    }
+  }
+
+  private def writeBytes(encoded: Array[Byte]): Unit = {
+    var i = 0
+    while (i < encoded.length) {
+      if (!bytes.hasRemaining) emit()
+      val n = math.min(bytes.remaining, encoded.length - i)
+      bytes.put(encoded, i, n)
+      i += n
+    }
+  }
+
+  private def encode(endOfInput: Boolean): Unit = {
+    chars.flip()
+    while (encoder.encode(chars, bytes, endOfInput).isOverflow) emit()
+    chars.compact()
+  }
+
+  /**
+   * Encodes the pending characters, and emits whatever is in the byte buffer, without ending the input: a character
+   * split in two surrogates may still be pending.
+   */
+  def drain(): Unit = {
+    encode(endOfInput = false)
+    if (bytes.position() > 0) emit()
+  }
+
+  /**
+   * Encodes any pending characters, and emits whatever is left in the byte buffer.
+   */
+  def finish(): Unit = {
+    encode(endOfInput = true)
+    while (encoder.flush(bytes).isOverflow) emit()
+    if (bytes.position() > 0) emit()
+  }
+
+  def flush(): Unit = ()
+
+  def close(): Unit = ()
+}
@@ -4,6 +4,7 @@
 
 package play.twirl.api
 
+import java.nio.charset.StandardCharsets
 import scala.collection.immutable
 
 /**
@@ -13,6 +14,22 @@ import scala.collection.immutable
  */
 trait Appendable[T]
 
+/**
+ * Static text of a template, encoded to UTF-8 once when the template is loaded.
+ *
+ * Compiled templates hold their static text in constants of this type, so that when content is written as UTF-8 bytes
+ * the static parts are copied as they are, rather than being encoded again on every render.
+ */
+final class StaticText(val text: String) {
+  val utf8: Array[Byte] = text.getBytes(StandardCharsets.UTF_8)
+
+  override def toString = text
+}
+
+object StaticText {
+  def apply(text: String): StaticText = new StaticText(text)
+}
+
 /**
  * A template format defines how to properly integrate content for a type `T` (e.g. to prevent cross-site scripting
  * attacks)
@@ -29,6 +46,14 @@ trait Format[T <: Appendable[T]] {
    */
   def raw(text: String): T
 
+  /**
+   * Integrate static template `text` without performing any escaping process. Formats that keep the pre-encoded bytes
+   * of the text should override this.
+   * @param text
+   *   Static text to integrate
+   */
+  def raw(text: StaticText): T = raw(text.text)
+
   /**
    * Integrate `text` after escaping special characters. e.g. for HTML, “<” becomes “&amp;lt;”
    * @param text
@@ -36,6 +61,21 @@ trait Format[T <: Appendable[T]] {
    */
   def escape(text: String): T
 
+  /**
+   * Integrate the decimal representation of `value`. It never needs escaping, so formats may write it out directly,
+   * without creating an intermediate String.
+   * @param value
+   *   Number to integrate
+   */
+  def number(value: Long): T = escape(java.lang.Long.toString(value))
+
+  /**
+   * Integrate the decimal representation of `value`. It never needs escaping.
+   * @param value
+   *   Number to integrate
+   */
+  def number(value: Double): T = escape(java.lang.Double.toString(value))
+
   /**
    * Generate an empty appendable
    */
@@ -45,4 +85,67 @@ trait Format[T <: Appendable[T]] {
    * Fill an appendable with the elements
    */
   def fill(elements: immutable.Seq[T]): T
+
+  /**
+   * Integrate content that is only evaluated when it is rendered, if ever, and at most once. Expensive parts of a page
+   * can then be built as part of the template, without costing anything until the page is written out.
+   * @param content
+   *   Content to evaluate when it is rendered
+   */
+  def lazyFragment(content: => T): T = fill(new DeferredElement(() => content))
+
+  /**
+   * Integrate content that is rendered once per key in the cache, when it is first rendered, and then reused as it is
+   * until it is evicted or expires. The key must identify everything the content depends on.
+   * @param cache
+   *   Cache of rendered fragments
+   * @param key
+   *   Key identifying the content
+   * @param content
+   *   Content to evaluate when it is rendered and not cached
+   */
+  def memoizedFragment(cache: FragmentCache, key: Any)(content: => T): T =
+    lazyFragment(raw(cache.getOrRender(this, key)(content match {
+      case rendered: Content => rendered.body
+      case other             => other.toString
+    })))
+
+  /**
+   * Generate an empty appendable that marks a point where compressed output streamed with `CompressedContent` is
+   * flushed, so that the content before it can be sent while the rest is rendered.
+   */
+  def flushPoint: T = fill(FlushPointElements)
+}
+
+/**
+ * A single element, evaluated when it is first walked.
+ */
+private[api] final class DeferredElement[T](content: () => T)
+    extends scala.collection.AbstractSeq[T]
+    with immutable.Seq[T] {
+  private lazy val element = content()
+
+  def apply(i: Int): T = {
+    if (i != 0) throw new IndexOutOfBoundsException(i.toString)
+    element
+  }
+
+  def length: Int = 1
+
+  override def isEmpty: Boolean = false
+
+  def iterator: Iterator[T] = Iterator.single(element)
+}
+
+/**
+ * The elements of a flush point, which has none. They are recognized by reference.
+ */
+private[api] object FlushPointElements extends scala.collection.AbstractSeq[Nothing] with immutable.Seq[Nothing] {
+  def apply(i: Int): Nothing = throw new IndexOutOfBoundsException(i.toString)
+
+  def length: Int = 0
+
+  override def isEmpty: Boolean = true
+
+  def iterator: Iterator[Nothing] = Iterator.empty
 }
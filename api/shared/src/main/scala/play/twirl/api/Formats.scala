@@ -4,6 +4,8 @@
 
 package play.twirl.api
 
+import java.io.Writer
+import play.twirl.api.utils.Escaper
 import play.twirl.api.utils.StringEscapeUtils
 import scala.collection.immutable
 
@@ -16,51 +18,79 @@ object MimeTypes {
 
 object Formats {
   def safe(text: String): String = if (text eq null) "" else text
+
+  private val asciiStrings = Array.tabulate(128)(c => String.valueOf(c.toChar))
+
+  /**
+   * The String of a single char, shared for ASCII chars so that displaying them doesn't allocate.
+   */
+  private[api] def charString(c: Char): String = if (c < 128) asciiStrings(c) else String.valueOf(c)
+
+  private val trueText  = StaticText("true")
+  private val falseText = StaticText("false")
+
+  /**
+   * The shared text of a boolean, which needs no escaping in any format.
+   */
+  private[api] def booleanText(b: Boolean): StaticText = if (b) trueText else falseText
 }
 
 /**
  * Content type used in default HTML templates.
  *
- * This has 3 states, either it's a tree of elements, or a leaf, if it's a leaf, it's either safe text, or unsafe text
- * that needs to be escaped when written out.
+ * This has 3 states, either it's a tree of elements, or a leaf, if it's a leaf, it's either safe text (or a number), or
+ * unsafe text that needs to be escaped when written out.
  */
-class Html private[api] (elements: immutable.Seq[Html], text: String, escape: Boolean)
-    extends BufferedContent[Html](elements, text) {
+class Html private[api] (
+    elements: immutable.Seq[Html],
+    text: String,
+    escape: Boolean,
+    protected override val utf8: Array[Byte],
+    protected override val number: Long
+) extends BufferedContent[Html](elements, text) {
+  private[api] def this(elements: immutable.Seq[Html], text: String, escape: Boolean) =
+    this(elements, text, escape, null, 0L)
   def this(text: String) = this(Nil, Formats.safe(text), false)
   def this(elements: immutable.Seq[Html]) = this(elements, "", false)
 
   /**
-   * We override buildString for performance - allowing text to not be escaped until passed in the final StringBuilder
-   * to encode it into.
+   * We override buildLeaf for performance - allowing text to not be escaped until passed in the final StringBuilder to
+   * encode it into.
    *
    * An alternative way of implementing this would be to make HtmlFormat.escape return a subclass of Html with a custom
-   * buildString implementation. While this does significantly improve performance if a template needs to escape a lot
-   * of Strings, if it doesn't, performance actually goes down (measured 10%), due to the fact that the JVM can't
-   * optimise the invocation of buildString as well because there are two different possible implementations.
-   */
-  protected override def buildString(builder: StringBuilder): Unit = {
-    if (elements.nonEmpty) {
-      elements.foreach { e => e.buildString(builder) }
-    } else if (escape) {
-      // Using our own algorithm here because commons lang escaping wasn't designed for protecting against XSS, and there
-      // don't seem to be any other good generic escaping tools out there.
-      var i = 0
-      while (i < text.length) {
-        text.charAt(i) match {
-          case '<'  => builder.append("&lt;")
-          case '>'  => builder.append("&gt;")
-          case '"'  => builder.append("&quot;")
-          case '\'' => builder.append("&#x27;")
-          case '&'  => builder.append("&amp;")
-          case c    => builder += c
-        }
-        i += 1
-      }
+   * buildLeaf implementation. While this does significantly improve performance if a template needs to escape a lot of
+   * Strings, if it doesn't, performance actually goes down (measured 10%), due to the fact that the JVM can't optimise
+   * the invocation of buildLeaf as well because there are two different possible implementations.
+   */
+  protected override def buildLeaf(builder: StringBuilder): Unit = {
+    if (escape) {
+      Escaper.Html.escape(text, builder)
+    } else {
+      super.buildLeaf(builder)
+    }
+  }
+
+  /**
+   * Same as buildLeaf, but returns the escaped text.
+   */
+  protected override def leafText: String = if (escape) PlatformRendering.escapeHtml(text) else super.leafText
+
+  /**
+   * Same as buildLeaf, but writes straight to the writer.
+   */
+  protected override def writeLeaf(writer: Writer): Unit = {
+    if (escape) {
+      Escaper.Html.escape(text, writer)
     } else {
-      builder.append(text)
+      writeText(writer)
     }
   }
 
+  /**
+   * Text that is escaped when it is written usually grows a little, as only a few of its chars are replaced.
+   */
+  protected override def textLength: Int = if (escape) text.length + (text.length >> 3) else super.textLength
+
   /**
    * Content type of HTML.
    */
@@ -97,6 +127,21 @@ object HtmlFormat extends Format[Html] {
    */
   def raw(text: String): Html = Html(text)
 
+  /**
+   * Creates a raw (unescaped) HTML fragment from static template text.
+   */
+  override def raw(text: StaticText): Html = new Html(Nil, text.text, false, text.utf8, 0L)
+
+  /**
+   * Creates an HTML fragment of a number, which doesn't need escaping.
+   */
+  override def number(value: Long): Html = new Html(Nil, null, false, null, value)
+
+  /**
+   * Creates an HTML fragment of a number, which doesn't need escaping.
+   */
+  override def number(value: Double): Html = new Html(Nil, java.lang.Double.toString(value), false)
+
   /**
    * Creates a safe (escaped) HTML fragment.
    */
@@ -118,9 +163,14 @@ object HtmlFormat extends Format[Html] {
 /**
  * Content type used in default text templates.
  */
-class Txt private (elements: immutable.Seq[Txt], text: String) extends BufferedContent[Txt](elements, text) {
-  def this(text: String) = this(Nil, Formats.safe(text))
-  def this(elements: immutable.Seq[Txt]) = this(elements, "")
+class Txt private[api] (
+    elements: immutable.Seq[Txt],
+    text: String,
+    protected override val utf8: Array[Byte],
+    protected override val number: Long
+) extends BufferedContent[Txt](elements, text) {
+  def this(text: String) = this(Nil, Formats.safe(text), null, 0L)
+  def this(elements: immutable.Seq[Txt]) = this(elements, "", null, 0L)
 
   /**
    * Content type of text (`text/plain`).
@@ -151,6 +201,16 @@ object TxtFormat extends Format[Txt] {
    */
   def raw(text: String) = Txt(text)
 
+  /**
+   * Create a text fragment from static template text.
+   */
+  override def raw(text: StaticText): Txt = new Txt(Nil, text.text, text.utf8, 0L)
+
+  /**
+   * Create a text fragment of a number.
+   */
+  override def number(value: Long): Txt = new Txt(Nil, null, null, value)
+
   /**
    * No need for a safe (escaped) text fragment.
    */
@@ -170,9 +230,14 @@ object TxtFormat extends Format[Txt] {
 /**
  * Content type used in default XML templates.
  */
-class Xml private (elements: immutable.Seq[Xml], text: String) extends BufferedContent[Xml](elements, text) {
-  def this(text: String) = this(Nil, Formats.safe(text))
-  def this(elements: immutable.Seq[Xml]) = this(elements, "")
+class Xml private[api] (
+    elements: immutable.Seq[Xml],
+    text: String,
+    protected override val utf8: Array[Byte],
+    protected override val number: Long
+) extends BufferedContent[Xml](elements, text) {
+  def this(text: String) = this(Nil, Formats.safe(text), null, 0L)
+  def this(elements: immutable.Seq[Xml]) = this(elements, "", null, 0L)
 
   /**
    * Content type of XML (`application/xml`).
@@ -203,6 +268,21 @@ object XmlFormat extends Format[Xml] {
    */
   def raw(text: String) = Xml(text)
 
+  /**
+   * Creates an XML fragment from static template text.
+   */
+  override def raw(text: StaticText): Xml = new Xml(Nil, text.text, text.utf8, 0L)
+
+  /**
+   * Creates an XML fragment of a number, which doesn't need escaping.
+   */
+  override def number(value: Long): Xml = new Xml(Nil, null, null, value)
+
+  /**
+   * Creates an XML fragment of a number, which doesn't need escaping.
+   */
+  override def number(value: Double): Xml = Xml(java.lang.Double.toString(value))
+
   /**
    * Creates an escaped XML fragment.
    */
@@ -222,10 +302,14 @@ object XmlFormat extends Format[Xml] {
 /**
  * Type used in default JavaScript templates.
  */
-class JavaScript private (elements: immutable.Seq[JavaScript], text: String)
-    extends BufferedContent[JavaScript](elements, text) {
-  def this(text: String) = this(Nil, Formats.safe(text))
-  def this(elements: immutable.Seq[JavaScript]) = this(elements, "")
+class JavaScript private[api] (
+    elements: immutable.Seq[JavaScript],
+    text: String,
+    protected override val utf8: Array[Byte],
+    protected override val number: Long
+) extends BufferedContent[JavaScript](elements, text) {
+  def this(text: String) = this(Nil, Formats.safe(text), null, 0L)
+  def this(elements: immutable.Seq[JavaScript]) = this(elements, "", null, 0L)
 
   /**
    * Content type of JavaScript
@@ -258,6 +342,27 @@ object JavaScriptFormat extends Format[JavaScript] {
    */
   def raw(text: String): JavaScript = JavaScript(text)
 
+  /**
+   * Integrate static template `text` without performing any escaping process.
+   * @param text
+   *   Static text to integrate
+   */
+  override def raw(text: StaticText): JavaScript = new JavaScript(Nil, text.text, text.utf8, 0L)
+
+  /**
+   * Integrate the decimal representation of `value`, which doesn't need escaping.
+   * @param value
+   *   Number to integrate
+   */
+  override def number(value: Long): JavaScript = new JavaScript(Nil, null, null, value)
+
+  /**
+   * Integrate the decimal representation of `value`, which doesn't need escaping.
+   * @param value
+   *   Number to integrate
+   */
+  override def number(value: Double): JavaScript = JavaScript(java.lang.Double.toString(value))
+
   /**
    * Escapes `text` using JavaScript String rules.
    * @param text
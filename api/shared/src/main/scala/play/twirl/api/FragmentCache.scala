@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.twirl.api
+
+import scala.concurrent.duration.Duration
+
+/**
+ * Keeps the rendered text of fragments of templates, so that fragments that are the same for many requests, such as
+ * navigation menus or footers, are rendered once rather than on every request. See [[Format.memoizedFragment]].
+ *
+ * At most `maxSize` fragments are kept, the least recently used being evicted first. Fragments are rendered again once
+ * they are older than `timeToLive`. The cache is safe to use from several threads.
+ *
+ * @param maxSize
+ *   The maximum number of fragments to keep
+ * @param timeToLive
+ *   How long a rendered fragment is reused, forever by default
+ */
+final class FragmentCache(val maxSize: Int, val timeToLive: Duration = Duration.Inf) {
+  require(maxSize > 0, "The size of a fragment cache must be positive")
+
+  private val fragments = new java.util.LinkedHashMap[FragmentCache.Key, FragmentCache.Entry](16, 0.75f, true) {
+    override def removeEldestEntry(eldest: java.util.Map.Entry[FragmentCache.Key, FragmentCache.Entry]): Boolean =
+      this.size > maxSize
+  }
+
+  /**
+   * The cached text of the fragment with the given key in the given format, rendering it if it isn't cached or has
+   * expired.
+   */
+  private[api] def getOrRender(format: Format[?], key: Any)(render: => String): StaticText = {
+    val cacheKey = FragmentCache.Key(format, key)
+    val now      = System.nanoTime()
+    val cached   = fragments.synchronized(fragments.get(cacheKey))
+    if ((cached ne null) && (!timeToLive.isFinite || now - cached.renderedAt < timeToLive.toNanos)) {
+      cached.text
+    } else {
+      // Render outside of the lock, a concurrent render of the same fragment just stores the same text
+      val text = StaticText(render)
+      fragments.synchronized(fragments.put(cacheKey, new FragmentCache.Entry(text, now)))
+      text
+    }
+  }
+
+  /**
+   * The number of cached fragments.
+   */
+  def size: Int = fragments.synchronized(fragments.size)
+
+  def clear(): Unit = fragments.synchronized(fragments.clear())
+}
+
+object FragmentCache {
+  private final case class Key(format: Format[?], key: Any)
+  private final class Entry(val text: StaticText, val renderedAt: Long)
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.twirl.api
+
+import java.io.Writer
+
+/**
+ * Listens to the renderings of templates, to collect metrics about them. Listeners are registered with
+ * [[RenderListener.register]], and templates are only instrumented while at least one listener is registered.
+ *
+ * Listeners are called on the thread rendering or writing the template, so they should return quickly and must not
+ * throw.
+ */
+trait RenderListener {
+
+  /**
+   * Called after a template is rendered, that is after its `apply` method built its content.
+   *
+   * @param template
+   *   The full name of the template, like `views.html.index`
+   * @param durationNanos
+   *   How long the template took to evaluate its content, in nanoseconds. Lazy fragments are only evaluated when the
+   *   content is written.
+   */
+  def rendered(template: String, durationNanos: Long): Unit
+
+  /**
+   * Called after the content rendered by a template is written, by `body`, `writeTo`, `ChunkedContent` or
+   * `CompressedContent`. Only the content returned by the template being written is reported, not the content of the
+   * templates it includes, and it is reported every time it is written. Content written in chunks is reported once its
+   * last chunk is written.
+   *
+   * @param template
+   *   The full name of the template, like `views.html.index`
+   * @param durationNanos
+   *   How long writing the content took, in nanoseconds, including the evaluation of its lazy fragments
+   * @param nodeCount
+   *   The number of elements of the content, itself included
+   * @param outputLength
+   *   The number of chars written
+   */
+  def written(template: String, durationNanos: Long, nodeCount: Int, outputLength: Long): Unit = ()
+}
+
+object RenderListener {
+
+  /**
+   * The registered listeners, null when there are none, so that uninstrumented templates only read this field.
+   */
+  @volatile private var listeners: Array[RenderListener] = null
+
+  def register(listener: RenderListener): Unit = synchronized {
+    listeners = if (listeners eq null) Array(listener) else listeners :+ listener
+  }
+
+  def unregister(listener: RenderListener): Unit = synchronized {
+    if (listeners ne null) {
+      val remaining = listeners.filterNot(_ eq listener)
+      listeners = if (remaining.isEmpty) null else remaining
+    }
+  }
+
+  /**
+   * Whether templates are instrumented, that is if at least one listener is registered.
+   */
+  def enabled: Boolean = listeners ne null
+
+  /**
+   * The value of [[startTime]] when templates aren't instrumented.
+   */
+  private[api] final val NotInstrumented = Long.MinValue
+
+  /**
+   * The time a template starts rendering at, or `NotInstrumented` if no listener is registered.
+   */
+  private[api] def startTime(): Long = if (listeners eq null) NotInstrumented else System.nanoTime()
+
+  /**
+   * Tells the registered listeners that a template started at `startTime` has rendered the result, and marks the result
+   * as rendered by the template, so that writing it is reported too.
+   */
+  private[api] def rendered(template: String, startTime: Long, result: Any): Unit = {
+    val duration = System.nanoTime() - startTime
+    val current  = listeners
+    if (current ne null) {
+      result match {
+        case content: BufferedContent[?] => content.renderedBy = template
+        case _                           =>
+      }
+      var i = 0
+      while (i < current.length) {
+        current(i).rendered(template, duration)
+        i += 1
+      }
+    }
+  }
+
+  /**
+   * Starts measuring the writing of the content, or returns null if it wasn't rendered by a template while a listener
+   * was registered, or if none is registered anymore.
+   */
+  private[api] def writing(content: BufferedContent[?]): Writing =
+    if ((content.renderedBy eq null) || (listeners eq null)) null else new Writing(content)
+
+  /**
+   * Measures the writing of the content of a template. The clock runs from its creation, and can be paused while
+   * content written in chunks waits for the next chunk to be requested.
+   */
+  private[api] final class Writing(content: BufferedContent[?]) {
+    private var nanos = 0L
+    private var since = System.nanoTime()
+
+    def pause(): Unit = nanos += System.nanoTime() - since
+
+    def resume(): Unit = since = System.nanoTime()
+
+    /**
+     * Stops the clock and tells the registered listeners. The elements are counted once the content is written, when
+     * its lazy fragments have been evaluated, and aren't part of the duration.
+     */
+    def finish(outputLength: Long): Unit = {
+      pause()
+      val current = listeners
+      if (current ne null) {
+        val nodeCount = BufferedContent.countNodes(content)
+        var i         = 0
+        while (i < current.length) {
+          current(i).written(content.renderedBy, nanos, nodeCount, outputLength)
+          i += 1
+        }
+      }
+    }
+  }
+
+  /**
+   * Counts the chars written to the underlying writer.
+   */
+  private[api] final class CountingWriter(writer: Writer) extends Writer {
+    var count = 0L
+
+    def write(cbuf: Array[Char], off: Int, len: Int): Unit = {
+      writer.write(cbuf, off, len)
+      count += len
+    }
+
+    override def write(str: String, off: Int, len: Int): Unit = {
+      writer.write(str, off, len)
+      count += len
+    }
+
+    def flush(): Unit = writer.flush()
+
+    def close(): Unit = writer.close()
+  }
+}
@@ -33,6 +33,52 @@ object TwirlFeatureImports {
   /** Provides the `@using` language feature. */
   def using[T](t: T): T = t
 
+  /**
+   * Provides the `@lazyFragment { ... }` language feature, that displays its block only when the template is rendered,
+   * if ever, rather than when the template is called.
+   *
+   * @param content
+   *   The block to display.
+   */
+  def lazyFragment(content: => Any): LazyFragment = new LazyFragment(() => content)
+
+  /**
+   * Provides the `@memoizedFragment(cache, key) { ... }` language feature, that displays its block once per key in the
+   * cache, and then reuses the rendered text. The key must identify everything the block depends on.
+   *
+   * @param cache
+   *   The cache of rendered fragments.
+   * @param key
+   *   The key identifying the block.
+   * @param content
+   *   The block to display.
+   */
+  def memoizedFragment(cache: FragmentCache, key: Any)(content: => Any): MemoizedFragment =
+    new MemoizedFragment(cache, key, () => content)
+
+  /**
+   * Provides the `@flushPoint` language feature, that marks where compressed output streamed with `CompressedContent`
+   * is flushed, such as after the head of a page.
+   */
+  def flushPoint: FlushPoint = FlushPoint.Instance
+
+  /** A point displayed by `@flushPoint`. */
+  final class FlushPoint private ()
+
+  private object FlushPoint {
+    val Instance = new FlushPoint
+  }
+
+  /** A block displayed by `@lazyFragment`. */
+  final class LazyFragment private[api] (private[api] val content: () => Any)
+
+  /** A block displayed by `@memoizedFragment`. */
+  final class MemoizedFragment private[api] (
+      private[api] val cache: FragmentCache,
+      private[api] val key: Any,
+      private[api] val content: () => Any
+  )
+
   /** Adds "truthiness" to iterables, making them false if they are empty. */
   implicit def twirlIterableToBoolean(x: Iterable[?]): Boolean = x != null && !x.isEmpty
 
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.twirl.api.utils
+
+import java.io.Writer
+
+/**
+ * Escapes text by looking up each ASCII char in a table of replacements, and copying the runs of chars in between in
+ * bulk rather than one char at a time. Text that doesn't need escaping at all is left as it is.
+ *
+ * @param replacements
+ *   The replacement of each ASCII char, or null if the char is kept as it is. Chars from 128 up are always kept.
+ */
+private[twirl] final class Escaper private (replacements: Array[String]) {
+
+  /**
+   * The replacements as char arrays for writers, which copy a char array in bulk but a string char by char.
+   */
+  private val replacementChars: Array[Array[Char]] = replacements.map(r => if (r eq null) null else r.toCharArray)
+
+  /**
+   * The replacement of the char, or null if it is kept as it is.
+   */
+  @inline private def replacement(c: Char): String = if (c < 128) replacements(c) else null
+
+  /**
+   * Returns the escaped text, which is text itself if nothing needs to be replaced.
+   */
+  def escape(text: String): String = {
+    val len = text.length
+    var i   = 0
+    while (i < len && (replacement(text.charAt(i)) eq null)) i += 1
+    if (i == len) {
+      text
+    } else {
+      val builder = new java.lang.StringBuilder(len + 16)
+      builder.append(text, 0, i)
+      var start = i
+      while (i < len) {
+        val r = replacement(text.charAt(i))
+        if (r ne null) {
+          if (start < i) builder.append(text, start, i)
+          builder.append(r)
+          start = i + 1
+        }
+        i += 1
+      }
+      builder.append(text, start, len).toString
+    }
+  }
+
+  /**
+   * Appends the escaped text to the builder.
+   */
+  def escape(text: String, builder: StringBuilder): Unit = {
+    val len   = text.length
+    var start = 0
+    var i     = 0
+    while (i < len) {
+      val r = replacement(text.charAt(i))
+      if (r ne null) {
+        StringBuilders.appendRange(builder, text, start, i)
+        builder.append(r)
+        start = i + 1
+      }
+      i += 1
+    }
+    StringBuilders.appendRange(builder, text, start, len)
+  }
+
+  /**
+   * Writes the escaped text to the writer. Each call to a Writer is much more expensive than an append to a
+   * StringBuilder, so this only makes one call per replacement and per non-empty run of chars that don't need escaping.
+   */
+  def escape(text: String, writer: Writer): Unit = {
+    val len   = text.length
+    var start = 0
+    var i     = 0
+    while (i < len) {
+      val c = text.charAt(i)
+      val r = if (c < 128) replacementChars(c) else null
+      if (r ne null) {
+        if (start < i) writer.write(text, start, i - start)
+        if (r.length > 0) writer.write(r)
+        start = i + 1
+      }
+      i += 1
+    }
+    if (start < len) writer.write(text, start, len - start)
+  }
+}
+
+private[twirl] object Escaper {
+
+  /**
+   * Builds the table of replacements, in which later entries take precedence over earlier ones.
+   */
+  private def apply(replacements: Seq[(Char, String)]): Escaper = {
+    val table = new Array[String](128)
+    replacements.foreach { case (c, replacement) => table(c) = replacement }
+    new Escaper(table)
+  }
+
+  /**
+   * Our own rules rather than the ones of commons lang, because commons lang escaping wasn't designed for protecting
+   * against XSS, and there don't seem to be any other good generic escaping tools out there.
+   */
+  val Html: Escaper = Escaper(Seq('<' -> "&lt;", '>' -> "&gt;", '"' -> "&quot;", '\'' -> "&#x27;", '&' -> "&amp;"))
+
+  /**
+   * Implemented per XML spec: http://www.w3.org/International/questions/qa-controls. Control chars other than tab, new
+   * line and carriage return are dropped.
+   */
+  val Xml11: Escaper = Escaper(
+    controlChars(except = "\t\n\r") ++ Seq('<' -> "&lt;", '>' -> "&gt;", '&' -> "&amp;", '"' -> "&quot;")
+  )
+
+  /**
+   * The standard lookup and the Java control chars. Any other char below ' ' is dropped.
+   */
+  val EcmaScript: Escaper = Escaper(
+    controlChars(except = "") ++ Seq(
+      '\'' -> "\\'",
+      '"'  -> "\\\"",
+      '\\' -> "\\\\",
+      '/'  -> "\\/",
+      '\b' -> "\\b",
+      '\n' -> "\\n",
+      '\t' -> "\\t",
+      '\f' -> "\\f",
+      '\r' -> "\\r"
+    )
+  )
+
+  private def controlChars(except: String): Seq[(Char, String)] =
+    (0 until ' ').map(_.toChar).filterNot(except.contains(_)).map(_ -> "")
+}
@@ -4,6 +4,9 @@
 
 package play.twirl.api.test
 
+import java.io.ByteArrayOutputStream
+import java.io.StringWriter
+import java.nio.charset.StandardCharsets
 import play.twirl.api._
 import scala.collection.immutable
 import org.scalatest.matchers.must.Matchers
@@ -54,4 +57,129 @@ class BufferedContentSpec extends AnyWordSpec with Matchers {
       Xml("hello") mustEqual Xml("hello")
     }
   }
+
+  "writeTo" should {
+    "write the same content as body" in {
+      val html = HtmlFormat.fill(
+        immutable.Seq(
+          Html("<p>"),
+          HtmlFormat.fill(immutable.Seq(HtmlFormat.escape("a < b & 'c' > \"d\""), HtmlFormat.escape("plain"))),
+          Html("</p>")
+        )
+      )
+      val writer = new StringWriter()
+      html.writeTo(writer)
+      writer.toString mustEqual html.body
+      writer.toString mustEqual "<p>a &lt; b &amp; &#x27;c&#x27; &gt; &quot;d&quot;plain</p>"
+    }
+
+    "write non Html content" in {
+      val writer = new StringWriter()
+      XmlFormat.fill(immutable.Seq(Xml("<a>"), XmlFormat.escape("&"), Xml("</a>"))).writeTo(writer)
+      writer.toString mustEqual "<a>&amp;</a>"
+    }
+
+    "write numbers" in {
+      val writer = new StringWriter()
+      HtmlFormat.fill(immutable.Seq(Html("<i>"), HtmlFormat.number(-7L), Html("</i>"))).writeTo(writer)
+      writer.toString mustEqual "<i>-7</i>"
+    }
+
+    "copy pre-encoded static text" in {
+      val html = HtmlFormat.fill(
+        immutable.Seq(
+          HtmlFormat.raw(StaticText("<p>こんにちは ")),
+          HtmlFormat.escape("<b>"),
+          HtmlFormat.raw(StaticText("</p>"))
+        )
+      )
+      val utf8 = new ByteArrayOutputStream()
+      html.writeTo(utf8, StandardCharsets.UTF_8)
+      new String(utf8.toByteArray, StandardCharsets.UTF_8) mustEqual "<p>こんにちは &lt;b&gt;</p>"
+
+      val utf16 = new ByteArrayOutputStream()
+      html.writeTo(utf16, StandardCharsets.UTF_16)
+      new String(utf16.toByteArray, StandardCharsets.UTF_16) mustEqual "<p>こんにちは &lt;b&gt;</p>"
+    }
+
+    "complete a surrogate pair split across a static text boundary" in {
+      val html = HtmlFormat.fill(immutable.Seq(Html("a\uD83D"), HtmlFormat.raw(StaticText("\uDE00b"))))
+      val out  = new ByteArrayOutputStream()
+      html.writeTo(out, StandardCharsets.UTF_8)
+      new String(out.toByteArray, StandardCharsets.UTF_8) mustEqual "a\uD83D\uDE00b"
+    }
+
+    "encode the content with the given charset" in {
+      val out = new ByteArrayOutputStream()
+      HtmlFormat.fill(immutable.Seq(Html("こんにちは "), HtmlFormat.escape("<b>"))).writeTo(out, StandardCharsets.UTF_8)
+      new String(out.toByteArray, StandardCharsets.UTF_8) mustEqual "こんにちは &lt;b&gt;"
+    }
+  }
+
+  "rendering" should {
+    "not overflow the stack with deeply nested content" in {
+      val levels = 100000
+      val html = (1 to levels).foldLeft(HtmlFormat.escape("<b>")) { (inner, _) =>
+        HtmlFormat.fill(immutable.Seq(Html("<i>"), inner, Html("</i>")))
+      }
+      val expected = "<i>" * levels + "&lt;b&gt;" + "</i>" * levels
+      html.body mustEqual expected
+      val writer = new StringWriter()
+      html.writeTo(writer)
+      writer.toString mustEqual expected
+    }
+
+    "walk elements in any kind of sequence" in {
+      val html = HtmlFormat.fill(
+        Vector(
+          HtmlFormat.fill(List(Html("a"), HtmlFormat.number(1L))),
+          HtmlFormat.empty,
+          HtmlFormat.fill(immutable.Queue(Html("b"), HtmlFormat.escape("&"))),
+          HtmlFormat.fill(immutable.Seq(Html("c")))
+        )
+      )
+      html.body mustEqual "a1b&amp;c"
+      html.estimatedLength must be >= 5
+    }
+  }
+
+  "BaseScalaTemplate" should {
+    val template = BaseScalaTemplate[Html, Format[Html]](HtmlFormat)
+
+    "fill and display collections into array-backed children" in {
+      val filled = template._fill_(Html("<p>"), template._display_("a & b"), Html("</p>"))
+      filled.children mustBe an[immutable.IndexedSeq[?]]
+      filled.body mustBe "<p>a &amp; b</p>"
+      val displayed = Seq[Any](
+        List("a", 1),
+        Vector("a", 1),
+        Iterator("a", 1),
+        Array[Any]("a", 1),
+        java.util.Arrays.asList[Any]("a", 1)
+      ).map(template._display_(_))
+      displayed.foreach { html =>
+        html.children mustBe an[immutable.IndexedSeq[?]]
+        html.children must not be a[List[?]]
+        html.body mustBe "a1"
+      }
+    }
+  }
+
+  "estimatedLength" should {
+    "be the length of content that isn't escaped as it is written" in {
+      val numbers = Seq(0L, 7L, -7L, 10L, -10L, 12345L, Long.MaxValue, Long.MinValue)
+      numbers.foreach { n => HtmlFormat.number(n).estimatedLength mustBe n.toString.length }
+      val txt = TxtFormat.fill(immutable.Seq(Txt("a < b"), TxtFormat.number(-42L), TxtFormat.raw(StaticText("é"))))
+      txt.estimatedLength mustBe txt.body.length
+      val xml =
+        XmlFormat.fill(immutable.Seq(Xml("<a>"), XmlFormat.escape("&"), XmlFormat.fill(immutable.Seq(Xml("</a>")))))
+      xml.estimatedLength mustBe xml.body.length
+    }
+
+    "allow for the escaping of HTML" in {
+      val html = HtmlFormat.fill(immutable.Seq(Html("<p>"), HtmlFormat.escape("a & b, c & d, e & f"), Html("</p>")))
+      html.estimatedLength must be >= "<p>a & b, c & d, e & f</p>".length
+      html.estimatedLength must be <= html.body.length
+    }
+  }
 }
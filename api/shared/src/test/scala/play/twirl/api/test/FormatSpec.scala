@@ -5,6 +5,7 @@
 package play.twirl.api
 package test
 
+import scala.collection.immutable
 import org.scalatest.matchers.must.Matchers
 import org.scalatest.wordspec.AnyWordSpec
 
@@ -26,6 +27,47 @@ class FormatSpec extends AnyWordSpec with Matchers {
       JavaScript(text).body mustBe empty
       new JavaScript(text).body mustBe empty
     }
+
+    "write numbers" in {
+      HtmlFormat.number(-42L).body mustBe "-42"
+      TxtFormat.number(Long.MaxValue).body mustBe Long.MaxValue.toString
+      XmlFormat.number(1.5).body mustBe "1.5"
+      JavaScriptFormat.number(7L).body mustBe "7"
+      HtmlFormat.fill(List(Html("<b>"), HtmlFormat.number(12L), Html("</b>"))).body mustBe "<b>12</b>"
+    }
+  }
+
+  "BaseScalaTemplate" should {
+    val template = BaseScalaTemplate[Html, Format[Html]](HtmlFormat)
+
+    "display primitives like their toString" in {
+      template._display_(42).body mustBe "42"
+      template._display_(-42L).body mustBe "-42"
+      template._display_(0.25).body mustBe 0.25.toString
+      template._display_(1.1f).body mustBe 1.1f.toString
+      template._display_(true).body mustBe "true"
+      template._display_('x').body mustBe "x"
+      template._display_('ü').body mustBe "ü"
+      template._display_(3.toShort).body mustBe "3"
+    }
+
+    "escape chars" in {
+      template._display_('<').body mustBe "&lt;"
+    }
+
+    "display booleans as raw text" in {
+      var escaped = 0
+      val counting = new Format[Txt] {
+        def raw(text: String)                  = Txt(text)
+        def escape(text: String)               = { escaped += 1; Txt(text) }
+        val empty                              = Txt("")
+        def fill(elements: immutable.Seq[Txt]) = new Txt(elements)
+      }
+      val txtTemplate = BaseScalaTemplate[Txt, Format[Txt]](counting)
+      txtTemplate._display_(true).body mustBe "true"
+      txtTemplate._display_(false).body mustBe "false"
+      escaped mustBe 0
+    }
   }
 
   "HtmlFormat" should {
@@ -44,11 +86,46 @@ class FormatSpec extends AnyWordSpec with Matchers {
     "not escape non-ASCII characters" in {
       HtmlFormat.escape("こんにちは").body mustBe "こんにちは"
     }
+
+    "escape characters at the start, in the middle and at the end" in {
+      HtmlFormat.escape("<a&b>").body mustBe "&lt;a&amp;b&gt;"
+      HtmlFormat.escape("&&").body mustBe "&amp;&amp;"
+      HtmlFormat.escape("").body mustBe empty
+    }
+
+    "escape the leaves of a tree, and only those that are text" in {
+      val content = HtmlFormat.fill(
+        List(Html("<p>"), HtmlFormat.escape("a < b"), HtmlFormat.fill(List(HtmlFormat.escape("'c'"))), Html("</p>"))
+      )
+      content.body mustBe "<p>a &lt; b&#x27;c&#x27;</p>"
+    }
+  }
+
+  "XmlFormat" should {
+    "escape '<', '&', '>' and '\"'" in {
+      XmlFormat.escape("<a href=\"b\">&</a>").body mustBe "&lt;a href=&quot;b&quot;&gt;&amp;&lt;/a&gt;"
+    }
+
+    "drop control characters other than tab, new line and carriage return" in {
+      XmlFormat.escape("a\u0000b\tc\nd\re\u001f").body mustBe "ab\tc\nd\re"
+    }
   }
 
   "JavaScriptFormat" should {
     """escape ''', '"' and '\'""" in {
       JavaScriptFormat.escape("""foo ' bar " baz \""").body must be("""foo \' bar \" baz \\""")
     }
+
+    "escape '/' and control characters, dropping those without an escape sequence" in {
+      JavaScriptFormat.escape("</script>\b\n\t\f\r\u0001").body mustBe """<\/script>\b\n\t\f\r"""
+    }
+  }
+
+  "StringEscapeUtils" should {
+    "return text that doesn't need escaping as it is" in {
+      val text = "nothing to escape here ü"
+      assert(utils.StringEscapeUtils.escapeXml11(text) eq text)
+      assert(utils.StringEscapeUtils.escapeEcmaScript(text) eq text)
+    }
   }
 }
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.twirl.api
+package test
+
+import org.scalatest.matchers.must.Matchers
+import org.scalatest.wordspec.AnyWordSpec
+import scala.concurrent.duration.Duration
+import TwirlFeatureImports._
+
+class FragmentSpec extends AnyWordSpec with Matchers {
+
+  val template = BaseScalaTemplate[Html, Format[Html]](HtmlFormat)
+
+  "lazyFragment" should {
+    "display its block only when rendered, and once" in {
+      var evaluations = 0
+      val html        = template._display_(lazyFragment { evaluations += 1; "<b>" })
+      evaluations mustBe 0
+      val page = HtmlFormat.fill(List(Html("<p>"), html, Html("</p>")))
+      evaluations mustBe 0
+      page.body mustBe "<p>&lt;b&gt;</p>"
+      page.body mustBe "<p>&lt;b&gt;</p>"
+      evaluations mustBe 1
+    }
+
+    "display its block in the format of the template" in {
+      val txt = BaseScalaTemplate[Txt, Format[Txt]](TxtFormat)
+      txt._display_(lazyFragment(Seq("<a>", 1))).body mustBe "<a>1"
+    }
+  }
+
+  "memoizedFragment" should {
+    "display its block once per key" in {
+      val cache       = new FragmentCache(16)
+      var evaluations = 0
+      def render(key: String) =
+        template._display_(memoizedFragment(cache, key) { evaluations += 1; s"<$key>" }).body
+
+      render("a") mustBe "&lt;a&gt;"
+      render("a") mustBe "&lt;a&gt;"
+      evaluations mustBe 1
+      render("b") mustBe "&lt;b&gt;"
+      evaluations mustBe 2
+      cache.size mustBe 2
+    }
+
+    "not share fragments between formats" in {
+      val cache = new FragmentCache(16)
+      val txt   = BaseScalaTemplate[Txt, Format[Txt]](TxtFormat)
+      template._display_(memoizedFragment(cache, "k")("<a>")).body mustBe "&lt;a&gt;"
+      txt._display_(memoizedFragment(cache, "k")("<a>")).body mustBe "<a>"
+    }
+  }
+
+  "FragmentCache" should {
+    "evict the least recently used fragment" in {
+      val cache    = new FragmentCache(2)
+      var rendered = List.empty[String]
+      def render(key: String) =
+        template._display_(memoizedFragment(cache, key) { rendered ::= key; key }).body
+
+      render("a")
+      render("b")
+      render("a")
+      render("c")
+      cache.size mustBe 2
+      render("a")
+      render("b")
+      rendered mustBe List("b", "c", "b", "a")
+    }
+
+    "render fragments again once expired" in {
+      val cache       = new FragmentCache(16, Duration.Zero)
+      var evaluations = 0
+      def render()    = template._display_(memoizedFragment(cache, "k") { evaluations += 1; "x" }).body
+
+      render()
+      render()
+      evaluations mustBe 2
+    }
+
+    "forget its fragments when cleared" in {
+      val cache = new FragmentCache(16)
+      template._display_(memoizedFragment(cache, "k")("x")).body
+      cache.clear()
+      cache.size mustBe 0
+    }
+  }
+}
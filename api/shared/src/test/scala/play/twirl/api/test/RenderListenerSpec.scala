@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.twirl.api
+package test
+
+import java.io.ByteArrayOutputStream
+import java.io.StringWriter
+import java.nio.charset.StandardCharsets
+import org.scalatest.matchers.must.Matchers
+import org.scalatest.wordspec.AnyWordSpec
+import scala.collection.immutable
+
+class RenderListenerSpec extends AnyWordSpec with Matchers {
+
+  val template = BaseScalaTemplate[Html, Format[Html]](HtmlFormat)
+
+  /**
+   * Records the renderings and writings of the templates whose name starts with the prefix, as other suites may render
+   * templates concurrently.
+   */
+  final class Recorder(prefix: String) extends RenderListener {
+    var renderings = List.empty[String]
+    var writings   = List.empty[(String, Int, Long)]
+
+    def rendered(template: String, durationNanos: Long): Unit = {
+      durationNanos must be >= 0L
+      if (template.startsWith(prefix)) synchronized(renderings ::= template)
+    }
+
+    override def written(template: String, durationNanos: Long, nodeCount: Int, outputLength: Long): Unit = {
+      durationNanos must be >= 0L
+      if (template.startsWith(prefix)) synchronized(writings ::= ((template, nodeCount, outputLength)))
+    }
+  }
+
+  private def content: Html =
+    HtmlFormat.fill(immutable.Seq(Html("<p>"), HtmlFormat.fill(immutable.Seq(HtmlFormat.escape("a&b"))), Html("</p>")))
+
+  private def render(name: String, result: Html = content): Html =
+    template._endRender_(name, template._startRender_(), result)
+
+  private def recording[T](recorder: Recorder)(block: => T): T = {
+    RenderListener.register(recorder)
+    try block
+    finally RenderListener.unregister(recorder)
+  }
+
+  "RenderListener" should {
+    "be told about renderings once registered" in {
+      val recorder = new Recorder("spec.registered")
+      render("spec.registered.before")
+      recording(recorder)(render("spec.registered.after").body mustBe "<p>a&amp;b</p>")
+      render("spec.registered.removed")
+      recorder.renderings mustBe List("spec.registered.after")
+    }
+
+    "be told about the writing of the content of a template, with its node count and output length" in {
+      val recorder = new Recorder("spec.body")
+      recording(recorder) {
+        val page = render("spec.body")
+        recorder.writings mustBe Nil
+        page.body mustBe "<p>a&amp;b</p>"
+        page.body mustBe "<p>a&amp;b</p>"
+      }
+      recorder.writings mustBe List(("spec.body", 5, 14L))
+    }
+
+    "be told about every writing of the content to a writer or a stream" in {
+      val recorder = new Recorder("spec.writeTo")
+      recording(recorder) {
+        val page   = render("spec.writeTo", HtmlFormat.fill(immutable.Seq(content, HtmlFormat.raw(StaticText("é")))))
+        val writer = new StringWriter()
+        page.writeTo(writer)
+        writer.toString mustBe "<p>a&amp;b</p>é"
+        val out = new ByteArrayOutputStream()
+        page.writeTo(out, StandardCharsets.UTF_8)
+        new String(out.toByteArray, StandardCharsets.UTF_8) mustBe "<p>a&amp;b</p>é"
+      }
+      recorder.writings mustBe List(("spec.writeTo", 7, 15L), ("spec.writeTo", 7, 15L))
+    }
+
+    "not report the writing of content no template rendered while it was registered" in {
+      val recorder = new Recorder("spec.unrendered")
+      val before   = render("spec.unrendered")
+      recording(recorder) {
+        before.body
+        content.body
+      }
+      recorder.writings mustBe Nil
+    }
+
+    "not evaluate lazy fragments until the content is written" in {
+      val recorder    = new Recorder("spec.lazy")
+      var evaluations = 0
+      recording(recorder) {
+        val fragment = template._display_(TwirlFeatureImports.lazyFragment { evaluations += 1; "<b>" })
+        val page     = render("spec.lazy", HtmlFormat.fill(immutable.Seq(Html("<p>"), fragment, Html("</p>"))))
+        recorder.renderings mustBe List("spec.lazy")
+        evaluations mustBe 0
+        page.body mustBe "<p>&lt;b&gt;</p>"
+      }
+      evaluations mustBe 1
+      recorder.writings mustBe List(("spec.lazy", 5, 16L))
+    }
+
+    "not time renderings while no listener is registered" in {
+      if (!RenderListener.enabled) template._startRender_() mustBe RenderListener.NotInstrumented
+    }
+
+    "tell every registered listener" in {
+      val first  = new Recorder("spec.every")
+      val second = new Recorder("spec.every")
+      recording(first)(recording(second)(render("spec.every").body))
+      first.renderings mustBe List("spec.every")
+      second.renderings mustBe List("spec.every")
+      first.writings.map(_._1) mustBe List("spec.every")
+      second.writings.map(_._1) mustBe List("spec.every")
+    }
+
+    "report the writing of a number leaf" in {
+      val recorder = new Recorder("spec.number")
+      val txt      = BaseScalaTemplate[Txt, Format[Txt]](TxtFormat)
+      recording(recorder)(txt._endRender_("spec.number", txt._startRender_(), txt._display_(-42)).body mustBe "-42")
+      recorder.writings mustBe List(("spec.number", 1, 3L))
+    }
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.twirl.benchmarks
+
+import play.twirl.api.Html
+import play.twirl.api.HtmlFormat
+import play.twirl.api.Xml
+import play.twirl.api.XmlFormat
+
+/**
+ * Renders the body of content trees on Node.js, where JMH isn't available. Like `RenderBenchmark`, the trees are built
+ * once, and only wrapped in a new root for every invocation, since the body is computed once and then cached.
+ */
+object NodeRenderBenchmark {
+  private val WarmupIterations      = 5
+  private val MeasurementIterations = 5
+  private val IterationNanos        = 1000000000L
+
+  def main(args: Array[String]): Unit = {
+    val deepHtml = nested(500)
+    val wideHtml = HtmlFormat.fill((1 to 5000).toList.flatMap { i =>
+      List(Html("<li>"), HtmlFormat.escape(s"Item <$i> & co"), Html("</li>\n"))
+    })
+    val wideXml = XmlFormat.fill((1 to 5000).toList.flatMap { i =>
+      List(Xml("<item>"), XmlFormat.escape(s"Item <$i> & co"), Xml("</item>\n"))
+    })
+    val text = "Fish & Chips <served> with \"ketchup\" and 'vinegar'" * 20
+
+    val benchmarks = List[(String, () => Any)](
+      "deepHtmlBody"    -> (() => HtmlFormat.fill(List(deepHtml)).body),
+      "wideHtmlBody"    -> (() => HtmlFormat.fill(List(wideHtml)).body),
+      "wideXmlBody"     -> (() => XmlFormat.fill(List(wideXml)).body),
+      "escapeHtmlBody"  -> (() => HtmlFormat.escape(text).body),
+      "escapePlainBody" -> (() => HtmlFormat.escape("Nothing to escape here").body)
+    )
+    val only = args.headOption
+    benchmarks.filter { case (name, _) => only.forall(name.matches) }.foreach { case (name, benchmark) =>
+      (1 to WarmupIterations).foreach(_ => iteration(benchmark))
+      val results = (1 to MeasurementIterations).map(_ => iteration(benchmark))
+      println(f"$name%-20s ${results.sum / results.size}%12.3f us/op")
+    }
+  }
+
+  private def nested(levels: Int): Html =
+    (1 to levels).foldLeft(HtmlFormat.empty) { (inner, i) =>
+      HtmlFormat.fill(List(Html("<div class=\"level\">"), HtmlFormat.escape(s"Level #$i"), inner, Html("</div>")))
+    }
+
+  /**
+   * Runs the benchmark for about a second, and returns its average time in microseconds.
+   */
+  private def iteration(benchmark: () => Any): Double = {
+    val start      = System.nanoTime()
+    var end        = start
+    var operations = 0L
+    while (end - start < IterationNanos) {
+      benchmark()
+      operations += 1
+      end = System.nanoTime()
+    }
+    (end - start).toDouble / operations / 1000
+  }
+}
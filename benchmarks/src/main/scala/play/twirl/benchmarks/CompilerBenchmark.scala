@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.twirl.benchmarks
+
+import java.util.concurrent.TimeUnit
+import org.openjdk.jmh.annotations._
+import play.twirl.compiler.BuildInfo
+import play.twirl.compiler.TwirlCompiler
+import scala.io.Codec
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.AverageTime))
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+class CompilerBenchmark {
+  @Param(Array("small", "medium", "huge", "10k"))
+  var size: String = _
+
+  var content: Array[Byte] = _
+
+  @Setup
+  def setup(): Unit = content = Templates(size).getBytes(Codec.UTF8.charSet)
+
+  @Benchmark
+  def parseAndGenerateCode(): String =
+    TwirlCompiler.parseAndGenerateCode(
+      Array("views", "html", "benchmark"),
+      content,
+      Codec.UTF8,
+      "views/benchmark.scala.html",
+      "play.twirl.api.HtmlFormat.Appendable",
+      "play.twirl.api.HtmlFormat",
+      TwirlCompiler.defaultImports(BuildInfo.scalaVersion),
+      Nil,
+      inclusiveDot = false
+    )
+}
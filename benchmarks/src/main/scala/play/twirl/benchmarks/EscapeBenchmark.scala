@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.twirl.benchmarks
+
+import java.util.concurrent.TimeUnit
+import org.openjdk.jmh.annotations._
+import play.twirl.api.HtmlFormat
+import play.twirl.api.utils.StringEscapeUtils
+
+/**
+ * Compares the table driven escaping of Html, Xml and EcmaScript with the char by char escaping it replaced, on text
+ * that is mostly clean and on text that needs a lot of escaping.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.AverageTime))
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+class EscapeBenchmark {
+  @Param(Array("clean", "escaped"))
+  var input: String = _
+
+  var text: String = _
+
+  @Setup
+  def setup(): Unit = {
+    val sentence = input match {
+      case "clean"   => "The quick brown fox jumps over the lazy dog, and then has a rest. "
+      case "escaped" => "<b>\"Fish\" & 'Chips'</b> <i>&amp;</i> <<>> "
+    }
+    text = sentence * 16
+  }
+
+  @Benchmark
+  def html(): String = HtmlFormat.escape(text).body
+
+  @Benchmark
+  def htmlCharByChar(): String = {
+    val builder = new StringBuilder()
+    var i       = 0
+    while (i < text.length) {
+      text.charAt(i) match {
+        case '<'  => builder.append("&lt;")
+        case '>'  => builder.append("&gt;")
+        case '"'  => builder.append("&quot;")
+        case '\'' => builder.append("&#x27;")
+        case '&'  => builder.append("&amp;")
+        case c    => builder += c
+      }
+      i += 1
+    }
+    builder.toString
+  }
+
+  @Benchmark
+  def xml11(): String = StringEscapeUtils.escapeXml11(text)
+
+  @Benchmark
+  def xml11CharByChar(): String = {
+    val builder = new StringBuilder()
+    var i       = 0
+    while (i < text.length) {
+      text.charAt(i) match {
+        case '<'          => builder.append("&lt;")
+        case '>'          => builder.append("&gt;")
+        case '&'          => builder.append("&amp;")
+        case '"'          => builder.append("&quot;")
+        case '\n'         => builder.append('\n')
+        case '\r'         => builder.append('\r')
+        case '\t'         => builder.append('\t')
+        case c if c < ' ' =>
+        case c            => builder.append(c)
+      }
+      i += 1
+    }
+    builder.toString
+  }
+
+  @Benchmark
+  def ecmaScript(): String = StringEscapeUtils.escapeEcmaScript(text)
+
+  @Benchmark
+  def ecmaScriptCharByChar(): String = {
+    val builder = new StringBuilder()
+    var i       = 0
+    while (i < text.length) {
+      text.charAt(i) match {
+        case '\''         => builder.append("\\'")
+        case '"'          => builder.append("\\\"")
+        case '\\'         => builder.append("\\\\")
+        case '/'          => builder.append("\\/")
+        case '\b'         => builder.append("\\b")
+        case '\n'         => builder.append("\\n")
+        case '\t'         => builder.append("\\t")
+        case '\f'         => builder.append("\\f")
+        case '\r'         => builder.append("\\r")
+        case c if c < ' ' =>
+        case c            => builder.append(c)
+      }
+      i += 1
+    }
+    builder.toString
+  }
+}
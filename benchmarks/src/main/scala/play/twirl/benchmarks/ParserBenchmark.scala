@@ -0,0 +1,28 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.twirl.benchmarks
+
+import java.util.concurrent.TimeUnit
+import org.openjdk.jmh.annotations._
+import play.twirl.parser.TwirlParser
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.AverageTime))
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+class ParserBenchmark {
+  @Param(Array("small", "medium", "huge", "10k"))
+  var size: String = _
+
+  var source: String = _
+
+  @Setup
+  def setup(): Unit = source = Templates(size)
+
+  @Benchmark
+  def parse(): AnyRef = new TwirlParser(false).parse(source)
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.twirl.benchmarks
+
+import java.util.concurrent.TimeUnit
+import org.openjdk.jmh.annotations._
+import play.twirl.api.Html
+import play.twirl.api.HtmlFormat
+import play.twirl.api.Xml
+import play.twirl.api.XmlFormat
+
+/**
+ * Renders the body of content trees. The trees are built once, and only wrapped in a new root for every invocation,
+ * since the body is computed once and then cached.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.AverageTime))
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+class RenderBenchmark {
+  var deepHtml: Html     = _
+  var veryDeepHtml: Html = _
+  var wideHtml: Html     = _
+  var wideXml: Xml       = _
+
+  @Setup
+  def setup(): Unit = {
+    deepHtml = nested(500)
+    // Deep enough to overflow the stack of a recursive traversal on small thread stacks
+    veryDeepHtml = nested(20000)
+    wideHtml = HtmlFormat.fill((1 to 5000).toList.flatMap { i =>
+      List(Html("<li>"), HtmlFormat.escape(s"Item <$i> & co"), Html("</li>\n"))
+    })
+    wideXml = XmlFormat.fill((1 to 5000).toList.flatMap { i =>
+      List(Xml("<item>"), XmlFormat.escape(s"Item <$i> & co"), Xml("</item>\n"))
+    })
+  }
+
+  private def nested(levels: Int): Html =
+    (1 to levels).foldLeft(HtmlFormat.empty) { (inner, i) =>
+      HtmlFormat.fill(List(Html("<div class=\"level\">"), HtmlFormat.escape(s"Level #$i"), inner, Html("</div>")))
+    }
+
+  @Benchmark
+  def deepHtmlBody(): String = HtmlFormat.fill(List(deepHtml)).body
+
+  @Benchmark
+  def veryDeepHtmlBody(): String = HtmlFormat.fill(List(veryDeepHtml)).body
+
+  @Benchmark
+  def veryDeepHtmlWriter(): Int = {
+    val writer = new java.io.StringWriter()
+    veryDeepHtml.writeTo(writer)
+    writer.getBuffer.length
+  }
+
+  @Benchmark
+  def wideHtmlBody(): String = HtmlFormat.fill(List(wideHtml)).body
+
+  @Benchmark
+  def wideXmlBody(): String = XmlFormat.fill(List(wideXml)).body
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.twirl.benchmarks
+
+import java.util.concurrent.TimeUnit
+import org.openjdk.jmh.annotations._
+import play.twirl.api.Html
+import play.twirl.api.StringInterpolation
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.AverageTime))
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+class StringInterpolationBenchmark {
+  var name: String         = "Fish & Chips"
+  var count: Int           = 42
+  var tags: Seq[Html]      = List(Html("<b>hot</b>"), Html("<i>fresh</i>"))
+  var user: Option[String] = Some("<admin>")
+
+  @Benchmark
+  def html(): String = html"<p>$name ($count) $tags by $user</p>".body
+
+  @Benchmark
+  def xml(): String = xml"<item count='$count'>$name</item>".body
+
+  @Benchmark
+  def js(): String = js"var name = '$name', count = $count;".body
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.twirl.benchmarks
+
+/**
+ * Template sources of different sizes, using the common constructs of the template language.
+ */
+object Templates {
+  private val header =
+    """@import java.time.LocalDate
+      |@(title: String, items: Seq[(String, Int)], user: Option[String])(implicit today: LocalDate)
+      |
+      |@row(name: String, count: Int) = {
+      |  <li data-count="@count">@name.toUpperCase (@{count * 2})</li>
+      |}
+      |""".stripMargin
+
+  private val section =
+    """<section class="items">
+      |  <h2>@title, @today</h2>
+      |  @if(items.isEmpty) {
+      |    <p>No items</p>
+      |  } else {
+      |    <ul>
+      |    @for((name, count) <- items) {
+      |      @row(name, count)
+      |    }
+      |    </ul>
+      |  }
+      |  @user match {
+      |    case Some(name) => { <span>Signed in as @name</span> }
+      |    case None => { <a href="/login">Sign in</a> }
+      |  }
+      |  @* Comments are skipped *@
+      |</section>
+      |""".stripMargin
+
+  val small: String = "@(name: String)\n<h1>Hello @name!</h1>\n"
+
+  val medium: String = header + section * 20
+
+  val huge: String = header + section * 1000
+
+  /**
+   * About 10,000 lines, to catch code generation steps that are not linear in the size of the template.
+   */
+  val lines10k: String = header + section * 555
+
+  def apply(size: String): String =
+    size match {
+      case "small"  => small
+      case "medium" => medium
+      case "huge"   => huge
+      case "10k"    => lines10k
+    }
+}
@@ -13,6 +13,8 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import play.twirl.compiler.CompilationProfile;
+import play.twirl.compiler.CompileOptions;
 import scala.Option;
 import scala.collection.JavaConverters$;
 import scala.collection.Seq;
@@ -60,6 +62,62 @@ public class TwirlCompiler {
       List<String> constructorAnnotations,
       Codec codec,
       boolean inclusiveDot) {
+    return compile(
+        source,
+        sourceDirectory,
+        generatedDirectory,
+        formatterType,
+        additionalImports,
+        constructorAnnotations,
+        codec,
+        inclusiveDot,
+        false);
+  }
+
+  /**
+   * Compiles the template, minifying its static text if {@code minify} is set and it's an HTML or
+   * XML template: whitespace is collapsed and comments are dropped, except in {@code pre}, {@code
+   * textarea}, {@code script} and {@code style} elements.
+   */
+  public static Optional<File> compile(
+      File source,
+      File sourceDirectory,
+      File generatedDirectory,
+      String formatterType,
+      Collection<String> additionalImports,
+      List<String> constructorAnnotations,
+      Codec codec,
+      boolean inclusiveDot,
+      boolean minify) {
+    return compile(
+        source,
+        sourceDirectory,
+        generatedDirectory,
+        formatterType,
+        additionalImports,
+        constructorAnnotations,
+        codec,
+        inclusiveDot,
+        minify,
+        null);
+  }
+
+  /**
+   * Compiles the template like {@link #compile(File, File, File, String, Collection, List, Codec,
+   * boolean, boolean)}, and records how long reading, parsing, generating and writing it took in
+   * the profile, unless it's null.
+   */
+  public static Optional<File> compile(
+      File source,
+      File sourceDirectory,
+      File generatedDirectory,
+      String formatterType,
+      Collection<String> additionalImports,
+      List<String> constructorAnnotations,
+      Codec codec,
+      boolean inclusiveDot,
+      boolean minify,
+      CompilationProfile profile) {
     String scalaVersion = play.twirl.compiler.BuildInfo$.MODULE$.scalaVersion();
     Seq<String> scalaAdditionalImports = toScalaSeq(additionalImports);
     Seq<String> scalaConstructorAnnotations = toScalaSeq(constructorAnnotations);
@@ -70,11 +128,15 @@ public class TwirlCompiler {
             sourceDirectory,
             generatedDirectory,
             formatterType,
-            scala.Option.apply(scalaVersion),
-            scalaAdditionalImports,
-            scalaConstructorAnnotations,
-            codec,
-            inclusiveDot);
+            new CompileOptions(
+                Option.apply(scalaVersion),
+                scalaAdditionalImports,
+                scalaConstructorAnnotations,
+                codec,
+                inclusiveDot,
+                Option.empty(),
+                minify,
+                Option.apply(profile)));
     return Optional.ofNullable(option.nonEmpty() ? option.get() : null);
   }
 
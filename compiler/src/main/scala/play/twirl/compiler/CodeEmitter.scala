@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.twirl.compiler
+
+import scala.util.parsing.input.OffsetPosition
+import scala.util.parsing.input.Position
+
+/**
+ * Writes generated code into a single buffer, recording for every positioned fragment its offset and line in the
+ * generated code, so that they can be mapped back to the template.
+ *
+ * Nested fragments are written in place, in the order they are emitted, so generating code takes linear time in the
+ * size of the output.
+ */
+final class CodeEmitter private[compiler] (minifier: Option[MarkupMinifier], recording: Boolean) {
+  import CodeEmitter.IntPairs
+
+  def this() = this(None, false)
+
+  private[compiler] def this(minifier: Option[MarkupMinifier]) = this(minifier, false)
+
+  private[compiler] val code      = new java.lang.StringBuilder
+  private[compiler] val positions = new IntPairs
+  private[compiler] val lines     = new IntPairs
+
+  private val constants = scala.collection.mutable.LinkedHashMap.empty[String, String]
+
+  private var newLines         = 0
+  private var trailingNewLines = 0
+
+  /**
+   * The code as untyped tokens, for the deprecated code generators that return them, or null if they aren't recorded.
+   */
+  private val recorded = if (recording) new scala.collection.mutable.ArrayBuffer[Any] else null
+
+  /**
+   * Appends a fragment of code.
+   */
+  def text(fragment: String): this.type = {
+    if (recorded ne null) recorded += fragment
+    append(fragment)
+  }
+
+  /**
+   * Appends a fragment of code.
+   */
+  def text(c: Char): this.type = {
+    if (recorded ne null) recorded += c.toString
+    append(c)
+  }
+
+  /**
+   * Appends a fragment of code that comes from the given position in the template. It is preceded by a comment with the
+   * position, unless it has none.
+   */
+  def source(fragment: String, pos: Position): this.type = {
+    if (recorded ne null) recorded += Source(fragment, pos)
+    pos match {
+      case OffsetPosition(_, offset) =>
+        append("/*" + pos + "*/")
+        positions.add(code.length, offset)
+        lines.add(lineCount, pos.line)
+      case _ =>
+    }
+    append(fragment)
+  }
+
+  /**
+   * Appends a reference to a constant holding the given static text. Identical texts share a constant. The reference is
+   * padded with the newlines of the text, to keep the lines of the generated code aligned with the lines of the
+   * template.
+   */
+  def static(staticText: String): this.type = {
+    if (recorded ne null) recorded += StaticContent(staticText)
+    append(constants.getOrElseUpdate(staticText, "$twirl__static_" + constants.size))
+    var i = 0
+    while (i < staticText.length) {
+      if (staticText.charAt(i) == '\n') append('\n')
+      i += 1
+    }
+    this
+  }
+
+  /**
+   * The static text as it is emitted, minified if the template is minified.
+   */
+  private[compiler] def minify(staticText: String): String = minifier.fold(staticText)(_.minify(staticText))
+
+  /**
+   * Emits the code of a nested template, such as a sub template, whose static text is minified as markup of its own.
+   */
+  private[compiler] def nested(emit: => Unit): Unit = minifier.fold(emit)(_.fragment(emit))
+
+  /**
+   * The constants referenced by [[static]] so far, as pairs of their text and their name.
+   */
+  def staticConstants: collection.Seq[(String, String)] = constants.toSeq
+
+  /**
+   * Appends untyped tokens, as produced by code generators that predate the emitter: strings, characters, [[Source]],
+   * [[StaticContent]] (written as a string literal) and nested sequences of those.
+   */
+  def tokens(parts: collection.Seq[Any]): this.type = {
+    parts.foreach {
+      case c: Character              => text(c.charValue)
+      case s: String                 => text(s)
+      case Source(fragment, pos)     => source(fragment, pos)
+      case StaticContent(staticText) => TwirlCompiler.quoteAndEscape(staticText).foreach(text(_))
+      case s: collection.Seq[any]    => tokens(s)
+    }
+    this
+  }
+
+  /**
+   * The code emitted so far as untyped tokens, if this emitter records them: strings, [[Source]] and [[StaticContent]].
+   * Static content is replaced with references to its constants when it is hoisted, as it is in the code.
+   */
+  private[compiler] def recordedTokens(hoistStatic: Boolean): collection.Seq[Any] =
+    if (!hoistStatic) recorded.toList
+    else
+      recorded.toList.map {
+        case StaticContent(staticText) => constants(staticText) + "\n" * staticText.count(_ == '\n')
+        case token                     => token
+      }
+
+  private def append(fragment: String): this.type = {
+    code.append(fragment)
+    var i = 0
+    while (i < fragment.length) {
+      countNewLine(fragment.charAt(i))
+      i += 1
+    }
+    this
+  }
+
+  private def append(c: Char): this.type = {
+    code.append(c)
+    countNewLine(c)
+    this
+  }
+
+  /**
+   * The number of lines of the code so far, not counting trailing empty lines (as in `code.split('\n').size`).
+   */
+  private def lineCount: Int =
+    if (newLines == 0) 1                        // No line separator at all
+    else if (trailingNewLines == code.length) 0 // Only empty lines
+    else newLines + 1 - trailingNewLines
+
+  private def countNewLine(c: Char): Unit = {
+    if (c == '\n') {
+      newLines += 1
+      trailingNewLines += 1
+    } else {
+      trailingNewLines = 0
+    }
+  }
+
+  override def toString: String = code.toString
+}
+
+object CodeEmitter {
+
+  /**
+   * A growable list of pairs of ints, formatted as `a->b|c->d`.
+   */
+  private[compiler] final class IntPairs {
+    private var values = new Array[Int](64)
+    private var size   = 0
+
+    def add(first: Int, second: Int): Unit = {
+      if (size + 2 > values.length) values = java.util.Arrays.copyOf(values, values.length * 2)
+      values(size) = first
+      values(size + 1) = second
+      size += 2
+    }
+
+    def appendTo(builder: java.lang.StringBuilder): Unit = {
+      var i = 0
+      while (i < size) {
+        if (i > 0) builder.append('|')
+        builder.append(values(i)).append("->").append(values(i + 1))
+        i += 2
+      }
+    }
+  }
+}
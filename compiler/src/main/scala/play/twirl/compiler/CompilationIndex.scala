@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.twirl.compiler
+
+import java.io.File
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption
+import java.util.concurrent.ConcurrentHashMap
+import play.twirl.parser.TwirlIO
+import scala.io.Codec
+
+/**
+ * Remembers, for every compiled template, the state of its source and of its generated file, so that up to date
+ * templates are detected with a few `stat` calls instead of reading both files.
+ *
+ * Entries are keyed by the absolute path of the source. The index is safe to use from several threads, but is only
+ * written to disk by [[save]].
+ */
+final class CompilationIndex private (
+    val file: File,
+    entries: ConcurrentHashMap[String, CompilationIndex.Entry]
+) {
+  import CompilationIndex._
+
+  @volatile private var dirty = false
+
+  /**
+   * Whether the template must be compiled. Templates without an entry, for example those compiled before the index
+   * existed, are checked against the metadata of their generated source.
+   */
+  def needRecompilation(source: File, generated: GeneratedSource, imports: collection.Seq[String]): Boolean = {
+    val entry = entries.get(key(source))
+    if (entry == null || entry.generated != generated.file.getAbsolutePath) {
+      val lastModified = source.lastModified
+      val outdated     = generated.needRecompilation(imports)
+      if (!outdated) update(source, lastModified, TwirlIO.readFile(source), generated.file, imports)
+      outdated
+    } else {
+      val generatedModified = generated.file.lastModified
+      if (generatedModified == 0L || generatedModified != entry.generatedLastModified) {
+        true
+      } else if (Hash(Array.emptyByteArray, imports) != entry.importsHash) {
+        true
+      } else {
+        val lastModified = source.lastModified
+        if (lastModified == entry.lastModified && source.length == entry.size) {
+          false
+        } else {
+          // Touched, but maybe not changed: only compare the content then
+          val content = TwirlIO.readFile(source)
+          if (content.length != entry.size || Hash(content, Nil) != entry.contentHash) {
+            true
+          } else {
+            entries.put(key(source), entry.copy(lastModified = lastModified))
+            dirty = true
+            false
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Records that the generated file is up to date with the given content of the source, which was last modified at
+   * `lastModified` before being read.
+   */
+  def update(
+      source: File,
+      lastModified: Long,
+      content: Array[Byte],
+      generated: File,
+      imports: collection.Seq[String]
+  ): Unit = {
+    val entry = Entry(
+      lastModified,
+      content.length.toLong,
+      Hash(content, Nil),
+      Hash(Array.emptyByteArray, imports),
+      generated.getAbsolutePath,
+      generated.lastModified
+    )
+    if (isStorable(key(source)) && isStorable(entry.generated)) {
+      entries.put(key(source), entry)
+      dirty = true
+    }
+  }
+
+  /**
+   * Deletes the generated files of the sources that don't exist anymore, and forgets about generated files that were
+   * deleted. Returns the generated files that were not found in the index.
+   */
+  def sync(generatedFiles: Seq[File]): Seq[File] = {
+    val indexed = new java.util.HashMap[String, String]()
+    entries.forEach { (source, entry) =>
+      if (!new File(entry.generated).exists) {
+        entries.remove(source)
+        dirty = true
+      } else if (!new File(source).exists) {
+        new File(entry.generated).delete()
+        entries.remove(source)
+        dirty = true
+      } else {
+        indexed.put(entry.generated, source)
+      }
+    }
+    generatedFiles.filter(f => f.exists && !indexed.containsKey(f.getAbsolutePath))
+  }
+
+  /**
+   * Writes the index to disk, if it has changed since it was loaded.
+   */
+  def save(): Unit = {
+    if (dirty) {
+      val builder = new StringBuilder(Header).append('\n')
+      entries.forEach { (source, entry) =>
+        builder
+          .append(source)
+          .append('\t')
+          .append(entry.lastModified)
+          .append('\t')
+          .append(entry.size)
+          .append('\t')
+          .append(entry.contentHash)
+          .append('\t')
+          .append(entry.importsHash)
+          .append('\t')
+          .append(entry.generated)
+          .append('\t')
+          .append(entry.generatedLastModified)
+          .append('\n')
+      }
+      file.getParentFile.mkdirs()
+      val temporary = new File(file.getParentFile, file.getName + ".tmp")
+      TwirlIO.writeStringToFile(temporary, builder.toString, Codec.UTF8)
+      Files.move(temporary.toPath, file.toPath, StandardCopyOption.REPLACE_EXISTING)
+      dirty = false
+    }
+  }
+
+  private def key(source: File): String = source.getAbsolutePath
+}
+
+object CompilationIndex {
+
+  /**
+   * The name of the index file in the generated directory.
+   */
+  val FileName = ".twirl-index"
+
+  private val Header = "twirl-index 1"
+
+  private[compiler] final case class Entry(
+      lastModified: Long,
+      size: Long,
+      contentHash: String,
+      importsHash: String,
+      generated: String,
+      generatedLastModified: Long
+  )
+
+  /**
+   * Loads the index of the generated directory. A missing or unreadable index is treated as an empty one.
+   */
+  def load(generatedDirectory: File): CompilationIndex = {
+    val file    = new File(generatedDirectory, FileName)
+    val entries = new ConcurrentHashMap[String, Entry]()
+    try {
+      if (file.exists) {
+        val lines = new String(Files.readAllBytes(file.toPath), StandardCharsets.UTF_8).split('\n')
+        if (lines.headOption.contains(Header)) {
+          lines.iterator.drop(1).map(_.split('\t')).foreach {
+            case Array(source, lastModified, size, contentHash, importsHash, generated, generatedLastModified) =>
+              entries.put(
+                source,
+                Entry(
+                  lastModified.toLong,
+                  size.toLong,
+                  contentHash,
+                  importsHash,
+                  generated,
+                  generatedLastModified.toLong
+                )
+              )
+            case _ => // Skip malformed lines
+          }
+        }
+      }
+    } catch {
+      case _: Exception => entries.clear()
+    }
+    new CompilationIndex(file, entries)
+  }
+
+  private def isStorable(path: String): Boolean = path.indexOf('\t') < 0 && path.indexOf('\n') < 0
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.twirl.compiler
+
+import java.io.File
+import java.util.Locale
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.TimeUnit
+import jdk.jfr.Category
+import jdk.jfr.DataAmount
+import jdk.jfr.Description
+import jdk.jfr.Label
+import jdk.jfr.Name
+import jdk.jfr.StackTrace
+import jdk.jfr.Timespan
+import play.twirl.parser.TwirlIO
+import scala.annotation.meta.field
+import scala.io.Codec
+
+/**
+ * Collects how long each compiled template took to read, parse, generate and write, to find the templates that dominate
+ * the build time. Templates that are up to date are not compiled, so they are not part of the profile.
+ *
+ * The profile is safe to use from several threads.
+ */
+final class CompilationProfile {
+  import CompilationProfile._
+
+  private val recorded = new ConcurrentLinkedQueue[TemplateTiming]()
+
+  def record(timing: TemplateTiming): Unit = recorded.add(timing)
+
+  /**
+   * The timings of the compiled templates, by path.
+   */
+  def timings: Seq[TemplateTiming] = {
+    val builder = Seq.newBuilder[TemplateTiming]
+    recorded.forEach(builder += _)
+    builder.result().sortBy(_.source.getPath)
+  }
+
+  /**
+   * The `count` templates that took the longest to compile, slowest first.
+   */
+  def slowest(count: Int): Seq[TemplateTiming] = timings.sortBy(-_.totalNanos).take(count)
+
+  /**
+   * The `count` templates that generated the biggest sources, biggest first.
+   */
+  def biggest(count: Int): Seq[TemplateTiming] = timings.sortBy(-_.generatedBytes).take(count)
+
+  /**
+   * The report of the profile as JSON: the number of compiled templates and their total compilation time, and the `top`
+   * slowest templates and biggest generated sources.
+   */
+  def toJson(top: Int): String = {
+    val all     = timings
+    val builder = new StringBuilder("{\n")
+    builder.append("  \"templates\": ").append(all.size).append(",\n")
+    builder.append("  \"totalMillis\": ").append(millis(all.map(_.totalNanos).sum)).append(",\n")
+    appendTimings(builder, "slowest", slowest(top))
+    builder.append(",\n")
+    appendTimings(builder, "biggest", biggest(top))
+    builder.append("\n}\n").toString
+  }
+
+  /**
+   * Writes the JSON report of the profile to the file, see [[toJson]].
+   */
+  def writeReport(file: File, top: Int): Unit = {
+    Option(file.getAbsoluteFile.getParentFile).foreach(_.mkdirs())
+    TwirlIO.writeStringToFile(file, toJson(top), Codec.UTF8)
+  }
+
+  private def appendTimings(builder: StringBuilder, name: String, timings: Seq[TemplateTiming]): Unit = {
+    builder.append("  \"").append(name).append("\": [")
+    timings.zipWithIndex.foreach { case (timing, i) =>
+      builder
+        .append(if (i == 0) "\n" else ",\n")
+        .append("    {\"source\": ")
+        .append(quote(timing.source.getPath))
+        .append(", \"totalMillis\": ")
+        .append(millis(timing.totalNanos))
+        .append(", \"readMillis\": ")
+        .append(millis(timing.readNanos))
+        .append(", \"parseMillis\": ")
+        .append(millis(timing.parseNanos))
+        .append(", \"generateMillis\": ")
+        .append(millis(timing.generateNanos))
+        .append(", \"writeMillis\": ")
+        .append(millis(timing.writeNanos))
+        .append(", \"generatedBytes\": ")
+        .append(timing.generatedBytes)
+        .append("}")
+    }
+    builder.append(if (timings.isEmpty) "]" else "\n  ]")
+  }
+}
+
+object CompilationProfile {
+
+  /**
+   * The default number of templates listed in the slowest and biggest templates of a report.
+   */
+  val DefaultTop: Int = 10
+
+  /**
+   * How long a template took to compile, phase by phase, and the size of the source generated from it.
+   */
+  final case class TemplateTiming(
+      source: File,
+      readNanos: Long,
+      parseNanos: Long,
+      generateNanos: Long,
+      writeNanos: Long,
+      generatedBytes: Long
+  ) {
+    def totalNanos: Long = readNanos + parseNanos + generateNanos + writeNanos
+
+    override def toString: String =
+      s"${source.getPath}: ${millis(totalNanos)} ms (read ${millis(readNanos)}, parse ${millis(parseNanos)}, " +
+        s"generate ${millis(generateNanos)}, write ${millis(writeNanos)}), $generatedBytes bytes generated"
+  }
+
+  private def millis(nanos: Long): String =
+    String.format(Locale.ROOT, "%.3f", Double.box(nanos.toDouble / TimeUnit.MILLISECONDS.toNanos(1)))
+
+  private def quote(text: String): String = {
+    val builder = new StringBuilder("\"")
+    text.foreach {
+      case '"'          => builder.append("\\\"")
+      case '\\'         => builder.append("\\\\")
+      case c if c < ' ' => builder.append(String.format(Locale.ROOT, "\\u%04x", Int.box(c.toInt)))
+      case c            => builder.append(c)
+    }
+    builder.append('"').toString
+  }
+}
+
+/**
+ * The compilation of a template, recorded when the `play.twirl.TemplateCompile` event is enabled in a JDK Flight
+ * Recorder recording.
+ */
+@Name("play.twirl.TemplateCompile")
+@Label("Template Compile")
+@Category(Array("Play", "Twirl"))
+@Description("A template was compiled")
+@StackTrace(false)
+private[compiler] final class TemplateCompileEvent extends jdk.jfr.Event {
+  @(Label @field)("Source")
+  var source: String = null
+
+  @(Label @field)("Read Duration")
+  @(Timespan @field)(Timespan.NANOSECONDS)
+  var readDuration: Long = 0L
+
+  @(Label @field)("Parse Duration")
+  @(Timespan @field)(Timespan.NANOSECONDS)
+  var parseDuration: Long = 0L
+
+  @(Label @field)("Generate Duration")
+  @(Timespan @field)(Timespan.NANOSECONDS)
+  var generateDuration: Long = 0L
+
+  @(Label @field)("Write Duration")
+  @(Timespan @field)(Timespan.NANOSECONDS)
+  var writeDuration: Long = 0L
+
+  @(Label @field)("Generated Size")
+  @(DataAmount @field)(DataAmount.BYTES)
+  var generatedBytes: Long = 0L
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.twirl.compiler
+
+import play.twirl.parser.TwirlIO
+import scala.io.Codec
+
+/**
+ * How [[TwirlCompiler.compile]] compiles a template, beyond which template it is and where it goes.
+ *
+ * @param scalaVersion
+ *   The Scala version to generate code for, Scala 2 if unset
+ * @param additionalImports
+ *   The imports of the generated source, as formatted by [[TwirlCompiler.formatImports]]
+ * @param constructorAnnotations
+ *   The annotations of the constructors of the generated template classes
+ * @param codec
+ *   The encoding of the template and of the generated source
+ * @param inclusiveDot
+ *   Whether dots are part of the path of the template package, as in `views.html.a.b` for `a.b.scala.html`
+ * @param index
+ *   The index to check first whether the generated source is up to date, and to record the compiled template in. The
+ *   index is not saved. Without an index, the metadata of the generated source is read instead.
+ * @param minify
+ *   Whether to minify the static text of HTML and XML templates: whitespace is collapsed and comments are dropped,
+ *   except in `pre`, `textarea`, `script` and `style` elements
+ * @param profile
+ *   The profile to record how long reading, parsing, generating and writing the template took in
+ */
+final case class CompileOptions(
+    scalaVersion: Option[String] = None,
+    additionalImports: collection.Seq[String] = Nil,
+    constructorAnnotations: collection.Seq[String] = Nil,
+    codec: Codec = TwirlIO.defaultCodec,
+    inclusiveDot: Boolean = false,
+    index: Option[CompilationIndex] = None,
+    minify: Boolean = false,
+    profile: Option[CompilationProfile] = None
+)
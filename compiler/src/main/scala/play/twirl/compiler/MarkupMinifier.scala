@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.twirl.compiler
+
+/**
+ * Minifies the static text of HTML and XML templates: runs of whitespace are collapsed to a single space, or to a
+ * single new line if they contain one, which also trims indentation, and comments are dropped. The content of `pre`,
+ * `textarea`, `script` and `style` elements, attribute values, CDATA sections, and comments starting with `[` (like
+ * conditional comments) or `!` are kept as they are.
+ *
+ * The texts of a template are minified one after the other, in the order their code is generated, so that markup split
+ * by displayed values, like an attribute value or a `pre` element containing one, is still recognized. Displayed values
+ * are assumed not to change the state of the markup around them.
+ */
+private[compiler] final class MarkupMinifier {
+  import MarkupMinifier._
+
+  private var state      = Text
+  private var closingTag = false
+  private var quote      = '"'
+  private val tagName    = new java.lang.StringBuilder
+  private var rawElement = ""
+
+  /**
+   * The minified text, continuing from the markup of the texts minified before.
+   */
+  def minify(text: String): String = {
+    val out     = new java.lang.StringBuilder(text.length)
+    var pending = 0.toChar // Whitespace seen but not written yet
+    def flush(): Unit = if (pending != 0) {
+      out.append(pending)
+      pending = 0
+    }
+    def whitespace(c: Char): Unit = if (c == '\n') pending = '\n' else if (pending == 0) pending = ' '
+
+    var i = 0
+    while (i < text.length) {
+      val c = text.charAt(i)
+      state match {
+        case Text if isWhitespace(c) =>
+          whitespace(c)
+          i += 1
+        case Text if text.startsWith("<!--", i) =>
+          val end = text.indexOf("-->", i + 4)
+          if (end < 0 || text.startsWith("<!--[", i) || text.startsWith("<!--!", i)) {
+            flush()
+            state = Comment
+          } else {
+            i = end + 3
+          }
+        case Text if text.startsWith("<![CDATA[", i) =>
+          flush()
+          state = CData
+        case Text if c == '<' && i + 1 < text.length && isTagStart(text.charAt(i + 1)) =>
+          flush()
+          closingTag = text.charAt(i + 1) == '/'
+          tagName.setLength(0)
+          out.append(if (closingTag) "</" else "<")
+          i += (if (closingTag) 2 else 1)
+          state = TagName
+        case Text =>
+          flush()
+          out.append(c)
+          i += 1
+        case TagName if Character.isLetterOrDigit(c) || c == '-' || c == ':' || c == '_' =>
+          tagName.append(c)
+          out.append(c)
+          i += 1
+        case TagName =>
+          state = Attributes
+        case Attributes if isWhitespace(c) =>
+          whitespace(c)
+          i += 1
+        case Attributes if c == '"' || c == '\'' =>
+          flush()
+          out.append(c)
+          quote = c
+          state = Value
+          i += 1
+        case Attributes if c == '>' =>
+          flush()
+          val selfClosing = out.length > 0 && out.charAt(out.length - 1) == '/'
+          out.append(c)
+          rawElement = tagName.toString.toLowerCase(java.util.Locale.ROOT)
+          state = if (!closingTag && !selfClosing && RawElements(rawElement)) RawText else Text
+          i += 1
+        case Attributes =>
+          flush()
+          out.append(c)
+          i += 1
+        case Value =>
+          out.append(c)
+          if (c == quote) state = Attributes
+          i += 1
+        case RawText =>
+          val end = indexOfClosingTag(text, i)
+          if (end < 0) {
+            out.append(text, i, text.length)
+            i = text.length
+          } else {
+            out.append(text, i, end)
+            i = end
+            state = Text
+          }
+        case Comment =>
+          i = copyUntil(text, i, "-->", out)
+        case CData =>
+          i = copyUntil(text, i, "]]>", out)
+      }
+    }
+    flush()
+    out.toString
+  }
+
+  /**
+   * Minifies the texts of a nested template, such as a sub template, as markup of its own, and then resumes the markup
+   * of the enclosing template.
+   */
+  def fragment(generate: => Unit): Unit = {
+    val enclosing = (state, closingTag, quote, tagName.toString, rawElement)
+    state = Text
+    try generate
+    finally {
+      state = enclosing._1
+      closingTag = enclosing._2
+      quote = enclosing._3
+      tagName.setLength(0)
+      tagName.append(enclosing._4)
+      rawElement = enclosing._5
+    }
+  }
+
+  private def indexOfClosingTag(text: String, from: Int): Int = {
+    var i = text.indexOf("</", from)
+    while (i >= 0 && !isClosingTag(text, i)) {
+      i = text.indexOf("</", i + 2)
+    }
+    i
+  }
+
+  private def isClosingTag(text: String, at: Int): Boolean = {
+    val end = at + 2 + rawElement.length
+    text.regionMatches(true, at + 2, rawElement, 0, rawElement.length) &&
+    (end == text.length || !Character.isLetterOrDigit(text.charAt(end)))
+  }
+
+  private def copyUntil(text: String, from: Int, end: String, out: java.lang.StringBuilder): Int = {
+    val found = text.indexOf(end, from)
+    if (found < 0) {
+      out.append(text, from, text.length)
+      text.length
+    } else {
+      out.append(text, from, found + end.length)
+      state = Text
+      found + end.length
+    }
+  }
+}
+
+private[compiler] object MarkupMinifier {
+  private final val Text       = 0
+  private final val TagName    = 1
+  private final val Attributes = 2
+  private final val Value      = 3
+  private final val RawText    = 4
+  private final val Comment    = 5
+  private final val CData      = 6
+
+  private val RawElements = Set("pre", "textarea", "script", "style")
+
+  /**
+   * Whether the template is minified when minification is enabled, that is if it's an HTML or XML template.
+   */
+  def isMarkup(templatePath: String): Boolean = templatePath.endsWith(".html") || templatePath.endsWith(".xml")
+
+  private def isWhitespace(c: Char): Boolean = c == ' ' || c == '\n' || c == '\t' || c == '\r' || c == '\f'
+
+  private def isTagStart(c: Char): Boolean = Character.isLetter(c) || c == '/' || c == '!' || c == '?'
+}
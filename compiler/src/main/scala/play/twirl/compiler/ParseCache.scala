@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.twirl.compiler
+
+import play.twirl.parser.TreeNodes.Template
+
+/**
+ * Keeps the parsed trees of recently compiled templates, so that callers compiling the same content again, such as
+ * editors calling `compileVirtual` on every change, don't parse it again. At most `maxSize` trees are kept, the least
+ * recently used being evicted first.
+ *
+ * Trees are keyed by the hash of the content, and the content is compared on a hit, so two templates with colliding
+ * hashes can't share a tree. This doesn't take more memory, as the positions of a tree already reference its content.
+ * Only templates that parsed without errors are cached. The cache is safe to use from several threads.
+ */
+final class ParseCache(val maxSize: Int) {
+  require(maxSize > 0, "The size of a parse cache must be positive")
+
+  private val templates = new java.util.LinkedHashMap[ParseCache.Key, Template](16, 0.75f, true) {
+    override def removeEldestEntry(eldest: java.util.Map.Entry[ParseCache.Key, Template]): Boolean =
+      this.size > maxSize
+  }
+
+  /**
+   * The cached tree of the given content, parsing it if it isn't cached yet.
+   */
+  private[compiler] def getOrParse(source: String, inclusiveDot: Boolean)(parse: => Template): Template = {
+    val key    = ParseCache.Key(source, inclusiveDot)
+    val cached = templates.synchronized(templates.get(key))
+    if (cached ne null) {
+      cached
+    } else {
+      // Parse outside of the lock, a concurrent parse of the same content just stores an equivalent tree
+      val parsed = parse
+      templates.synchronized(templates.put(key, parsed))
+      parsed
+    }
+  }
+
+  /**
+   * The number of cached trees.
+   */
+  def size: Int = templates.synchronized(templates.size)
+
+  def clear(): Unit = templates.synchronized(templates.clear())
+}
+
+object ParseCache {
+  private final case class Key(source: String, inclusiveDot: Boolean)
+}
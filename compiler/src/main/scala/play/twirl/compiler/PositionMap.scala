@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.twirl.compiler
+
+/**
+ * Maps positions (or lines) in a generated source back to the template, from the pairs recorded in the `MATRIX` (or
+ * `LINES`) metadata. A position is mapped relative to the last pair at or before it.
+ *
+ * The pairs are kept in two primitive arrays. As they are written in increasing order of generated position, they are
+ * looked up with a binary search; a corrupted list that isn't sorted is scanned in order instead.
+ */
+private[compiler] final class PositionMap private (generated: Array[Int], original: Array[Int]) {
+
+  private val sorted = (1 until generated.length).forall(i => generated(i - 1) <= generated(i))
+
+  def apply(generatedPosition: Int): Int = {
+    val size = generated.length
+    if (size == 0) {
+      0
+    } else {
+      val next = firstAfter(generatedPosition)
+      if (next == 0) {
+        0
+      } else {
+        val i = if (next < 0) size - 1 else next - 1
+        original(i) + (generatedPosition - generated(i))
+      }
+    }
+  }
+
+  def pairs: Seq[(Int, Int)] = generated.indices.map(i => generated(i) -> original(i))
+
+  /**
+   * The index of the first pair with a generated position after the given one, or -1 if there is none.
+   */
+  private def firstAfter(generatedPosition: Int): Int = {
+    if (sorted) {
+      var low  = 0
+      var high = generated.length
+      while (low < high) {
+        val middle = (low + high) >>> 1
+        if (generated(middle) > generatedPosition) high = middle else low = middle + 1
+      }
+      if (low == generated.length) -1 else low
+    } else {
+      generated.indexWhere(_ > generatedPosition)
+    }
+  }
+}
+
+private[compiler] object PositionMap {
+
+  /**
+   * Decodes pairs formatted as `generated->original|generated->original|...`. A corrupted pair is read as `0->0`.
+   */
+  def parse(encoded: String): PositionMap = {
+    val size      = encoded.count(_ == '|') + 1
+    val generated = new Array[Int](size)
+    val original  = new Array[Int](size)
+    var start     = 0
+    var i         = 0
+    while (i < size) {
+      val end   = encoded.indexOf('|', start) match { case -1 => encoded.length; case index => index }
+      val arrow = encoded.indexOf("->", start)
+      if (arrow >= 0 && arrow < end) {
+        try {
+          val originalEnd = encoded.indexOf("->", arrow + 2) match { case -1 => end; case index => index.min(end) }
+          val from        = Integer.parseInt(encoded.substring(start, arrow))
+          val to          = Integer.parseInt(encoded.substring(arrow + 2, originalEnd))
+          generated(i) = from
+          original(i) = to
+        } catch {
+          case _: NumberFormatException => // Skip if the metadata is corrupted
+        }
+      }
+      start = end + 1
+      i += 1
+    }
+    new PositionMap(generated, original)
+  }
+}
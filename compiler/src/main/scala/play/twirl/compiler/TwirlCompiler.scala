@@ -11,7 +11,6 @@ import scala.meta.classifiers._
 import play.twirl.parser.TwirlIO
 import play.twirl.parser.TwirlParser
 import scala.util.parsing.input.Position
-import scala.util.parsing.input.OffsetPosition
 import scala.util.parsing.input.NoPosition
 
 object Hash {
@@ -44,85 +43,33 @@ object MaybeGeneratedSource {
 sealed trait AbstractGeneratedSource {
   def content: String
 
-  lazy val meta: Map[String, String] = {
-    val Meta          = """([A-Z]+): (.*)""".r
-    val UndefinedMeta = """([A-Z]+):""".r
-    Map.empty[String, String] ++ {
-      try {
-        content
-          .split("-- GENERATED --")(1)
-          .trim
-          .split('\n')
-          .map { m =>
-            m.trim match {
-              case Meta(key, value)   => key -> value
-              case UndefinedMeta(key) => key -> ""
-              case _                  => ("UNDEFINED", "")
-            }
-          }
-          .toMap
-      } catch {
-        case _: Exception => Map.empty[String, String]
-      }
-    }
-  }
+  lazy val meta: Map[String, String] = GeneratedMeta.parse(content)
 
-  lazy val matrix: Seq[(Int, Int)] = {
-    for {
-      pos <- meta("MATRIX").split('|').toIndexedSeq
-      c = pos.split("->")
-    } yield
-      try {
-        Integer.parseInt(c(0)) -> Integer.parseInt(c(1))
-      } catch {
-        case _: Exception => (0, 0) // Skip if MATRIX meta is corrupted
-      }
-  }
+  private[compiler] lazy val positionMaps: (PositionMap, PositionMap) =
+    PositionMap.parse(meta("MATRIX")) -> PositionMap.parse(meta("LINES"))
 
-  lazy val lines: Seq[(Int, Int)] = {
-    for {
-      pos <- meta("LINES").split('|').toIndexedSeq
-      c = pos.split("->")
-    } yield
-      try {
-        Integer.parseInt(c(0)) -> Integer.parseInt(c(1))
-      } catch {
-        case _: Exception => (0, 0) // Skip if LINES meta is corrupted
-      }
-  }
+  lazy val matrix: Seq[(Int, Int)] = positionMaps._1.pairs
 
-  def mapPosition(generatedPosition: Int): Int = {
-    matrix.indexWhere(p => p._1 > generatedPosition) match {
-      case 0          => 0
-      case i if i > 0 => {
-        val pos = matrix(i - 1)
-        pos._2 + (generatedPosition - pos._1)
-      }
-      case _ => {
-        val pos = matrix.takeRight(1)(0)
-        pos._2 + (generatedPosition - pos._1)
-      }
-    }
-  }
+  lazy val lines: Seq[(Int, Int)] = positionMaps._2.pairs
 
-  def mapLine(generatedLine: Int): Int = {
-    lines.indexWhere(p => p._1 > generatedLine) match {
-      case 0          => 0
-      case i if i > 0 => {
-        val line = lines(i - 1)
-        line._2 + (generatedLine - line._1)
-      }
-      case _ => {
-        val line = lines.takeRight(1)(0)
-        line._2 + (generatedLine - line._1)
-      }
-    }
-  }
+  def mapPosition(generatedPosition: Int): Int = positionMaps._1(generatedPosition)
+
+  def mapLine(generatedLine: Int): Int = positionMaps._2(generatedLine)
 }
 
 case class GeneratedSource(file: File, codec: Codec = TwirlIO.defaultCodec) extends AbstractGeneratedSource {
   def content = TwirlIO.readFileAsString(file, codec)
 
+  override lazy val meta: Map[String, String] = decoded.meta
+
+  private[compiler] override lazy val positionMaps: (PositionMap, PositionMap) = decoded.positionMaps
+
+  /**
+   * The metadata of the generated file, shared with the other instances for the same file as long as it isn't modified.
+   * Mapping every compiler diagnostic back to the template then only reads the generated file once.
+   */
+  private lazy val decoded: GeneratedMeta = GeneratedMeta.cached(file, content)
+
   def needRecompilation(imports: collection.Seq[String]): Boolean =
     !file.exists ||
       // A generated source already exist but
@@ -155,8 +102,70 @@ case class GeneratedSource(file: File, codec: Codec = TwirlIO.defaultCodec) exte
   }
 }
 
+/**
+ * The metadata in the `-- GENERATED --` footer of a generated source.
+ */
+private[compiler] final class GeneratedMeta private (
+    val lastModified: Long,
+    val length: Long,
+    val meta: Map[String, String]
+) {
+  lazy val positionMaps: (PositionMap, PositionMap) =
+    PositionMap.parse(meta("MATRIX")) -> PositionMap.parse(meta("LINES"))
+}
+
+private[compiler] object GeneratedMeta {
+  private val CacheSize = 1024
+
+  private val cache = new java.util.concurrent.ConcurrentHashMap[File, GeneratedMeta]()
+
+  def parse(content: => String): Map[String, String] = {
+    val Meta          = """([A-Z]+): (.*)""".r
+    val UndefinedMeta = """([A-Z]+):""".r
+    Map.empty[String, String] ++ {
+      try {
+        content
+          .split("-- GENERATED --")(1)
+          .trim
+          .split('\n')
+          .map { m =>
+            m.trim match {
+              case Meta(key, value)   => key -> value
+              case UndefinedMeta(key) => key -> ""
+              case _                  => ("UNDEFINED", "")
+            }
+          }
+          .toMap
+      } catch {
+        case _: Exception => Map.empty[String, String]
+      }
+    }
+  }
+
+  /**
+   * The metadata of the file, decoded again only if the file was modified since it was last decoded.
+   */
+  def cached(file: File, content: => String): GeneratedMeta = {
+    val lastModified = file.lastModified
+    val length       = file.length
+    val cached       = cache.get(file)
+    if ((cached ne null) && cached.lastModified == lastModified && cached.length == length && lastModified != 0L) {
+      cached
+    } else {
+      val decoded = new GeneratedMeta(lastModified, length, parse(content))
+      if (lastModified != 0L) {
+        if (cache.size >= CacheSize) cache.clear()
+        cache.put(file, decoded)
+      }
+      decoded
+    }
+  }
+
+  def invalidate(file: File): Unit = cache.remove(file)
+}
+
 case class GeneratedSourceVirtual(path: String) extends AbstractGeneratedSource {
-  var _content                             = ""
+  var _content = ""
   def setContent(newContent: String): Unit = {
     this._content = newContent
   }
@@ -240,24 +249,84 @@ object TwirlCompiler {
       constructorAnnotations: collection.Seq[String],
       codec: Codec,
       inclusiveDot: Boolean
+  ): Option[File] =
+    compile(
+      source,
+      sourceDirectory,
+      generatedDirectory,
+      formatterType,
+      CompileOptions(scalaVersion, additionalImports, constructorAnnotations, codec, inclusiveDot)
+    )
+
+  /**
+   * Compiles the template with the given options, unless its generated source is up to date.
+   */
+  def compile(
+      source: File,
+      sourceDirectory: File,
+      generatedDirectory: File,
+      formatterType: String,
+      options: CompileOptions
   ): Option[File] = {
-    val resultType                      = formatterType + ".Appendable"
+    val resultType = formatterType + ".Appendable"
     val (templateName, generatedSource) =
-      generatedFile(source, codec, sourceDirectory, generatedDirectory, inclusiveDot)
-    if (generatedSource.needRecompilation(additionalImports)) {
-      val generated = parseAndGenerateCode(
-        templateName,
-        TwirlIO.readFile(source),
-        codec,
-        relativePath(source),
+      generatedFile(source, options.codec, sourceDirectory, generatedDirectory, options.inclusiveDot)
+    // Templates are generated again when minification is switched on or off
+    val minified = options.minify && MarkupMinifier.isMarkup(source.getName)
+    val hashed   = hashedOptions(options.additionalImports, minified)
+    val outdated = options.index match {
+      case Some(index) => index.needRecompilation(source, generatedSource, hashed)
+      case None        => generatedSource.needRecompilation(hashed)
+    }
+    if (outdated) {
+      val event        = new TemplateCompileEvent
+      val lastModified = source.lastModified
+      event.begin()
+      val readStart = System.nanoTime()
+      val content   = TwirlIO.readFile(source)
+      // Parsed and generated separately from parseAndGenerateCode, to time both phases
+      val parseStart    = System.nanoTime()
+      val path          = relativePath(source)
+      val parsed        = parse(new String(content, options.codec.charSet), path, options.inclusiveDot)
+      val generateStart = System.nanoTime()
+      val generated = generateFinalTemplate(
+        path,
+        content,
+        templateName.dropRight(1).mkString("."),
+        templateName.takeRight(1).mkString,
+        parsed,
         resultType,
         formatterType,
-        scalaVersion,
-        additionalImports,
-        constructorAnnotations,
-        inclusiveDot
+        ScalaCompat(options.scalaVersion),
+        options.additionalImports,
+        options.constructorAnnotations,
+        minified
       )
-      TwirlIO.writeStringToFile(generatedSource.file, generated.toString, codec)
+      val writeStart = System.nanoTime()
+      TwirlIO.writeStringToFile(generatedSource.file, generated.toString, options.codec)
+      val end = System.nanoTime()
+      GeneratedMeta.invalidate(generatedSource.file)
+      options.index.foreach(_.update(source, lastModified, content, generatedSource.file, hashed))
+      if (options.profile.isDefined || event.shouldCommit) {
+        val timing = CompilationProfile.TemplateTiming(
+          source,
+          parseStart - readStart,
+          generateStart - parseStart,
+          writeStart - generateStart,
+          end - writeStart,
+          generatedSource.file.length
+        )
+        options.profile.foreach(_.record(timing))
+        if (event.shouldCommit) {
+          event.source = source.getPath
+          event.readDuration = timing.readNanos
+          event.parseDuration = timing.parseNanos
+          event.generateDuration = timing.generateNanos
+          event.writeDuration = timing.writeNanos
+          event.generatedBytes = timing.generatedBytes
+          event.commit()
+        }
+      }
       Some(generatedSource.file)
     } else {
       None
@@ -299,10 +368,67 @@ object TwirlCompiler {
       constructorAnnotations: collection.Seq[String],
       codec: Codec,
       inclusiveDot: Boolean
+  ): GeneratedSourceVirtual =
+    compileVirtual(
+      content,
+      source,
+      sourceDirectory,
+      resultType,
+      formatterType,
+      scalaVersion,
+      additionalImports,
+      constructorAnnotations,
+      codec,
+      inclusiveDot,
+      None
+    )
+
+  /**
+   * Compiles the template, reusing the tree of a previous parse of the same content if the cache has it.
+   */
+  def compileVirtual(
+      content: String,
+      source: File,
+      sourceDirectory: File,
+      resultType: String,
+      formatterType: String,
+      scalaVersion: Option[String],
+      additionalImports: collection.Seq[String],
+      constructorAnnotations: collection.Seq[String],
+      codec: Codec,
+      inclusiveDot: Boolean,
+      parseCache: ParseCache
+  ): GeneratedSourceVirtual =
+    compileVirtual(
+      content,
+      source,
+      sourceDirectory,
+      resultType,
+      formatterType,
+      scalaVersion,
+      additionalImports,
+      constructorAnnotations,
+      codec,
+      inclusiveDot,
+      Some(parseCache)
+    )
+
+  private def compileVirtual(
+      content: String,
+      source: File,
+      sourceDirectory: File,
+      resultType: String,
+      formatterType: String,
+      scalaVersion: Option[String],
+      additionalImports: collection.Seq[String],
+      constructorAnnotations: collection.Seq[String],
+      codec: Codec,
+      inclusiveDot: Boolean,
+      parseCache: Option[ParseCache]
   ): GeneratedSourceVirtual = {
 
     val (templateName, generatedSource) = generatedFileVirtual(source, sourceDirectory, inclusiveDot)
-    val generated                       = parseAndGenerateCode(
+    val generated = parseAndGenerateCode(
       templateName,
       content.getBytes(codec.charSet),
       codec,
@@ -312,7 +438,9 @@ object TwirlCompiler {
       scalaVersion,
       additionalImports,
       constructorAnnotations,
-      inclusiveDot
+      inclusiveDot,
+      parseCache,
+      minify = false
     )
     generatedSource.setContent(generated)
     generatedSource
@@ -341,7 +469,9 @@ object TwirlCompiler {
     None,
     additionalImports,
     constructorAnnotations,
-    inclusiveDot
+    inclusiveDot,
+    None,
+    minify = false
   )
 
   private def parseAndGenerateCode(
@@ -354,24 +484,35 @@ object TwirlCompiler {
       scalaVersion: Option[String],
       additionalImports: collection.Seq[String],
       constructorAnnotations: collection.Seq[String],
-      inclusiveDot: Boolean
+      inclusiveDot: Boolean,
+      parseCache: Option[ParseCache],
+      minify: Boolean
   ): String = {
+    val source = new String(content, codec.charSet)
+    val parsed = parseCache match {
+      case Some(cache) => cache.getOrParse(source, inclusiveDot)(parse(source, relativePath, inclusiveDot))
+      case None        => parse(source, relativePath, inclusiveDot)
+    }
+    generateFinalTemplate(
+      relativePath,
+      content,
+      templateName.dropRight(1).mkString("."),
+      templateName.takeRight(1).mkString,
+      parsed,
+      resultType,
+      formatterType,
+      ScalaCompat(scalaVersion),
+      additionalImports,
+      constructorAnnotations,
+      minify
+    )
+  }
+
+  private def parse(source: String, relativePath: String, inclusiveDot: Boolean): Template = {
+    // A parser keeps the state of the parse in progress, and is cheap to create, so each parse has its own
     val templateParser = new TwirlParser(inclusiveDot)
-    templateParser.parse(new String(content, codec.charSet)) match {
-      case templateParser.Success(parsed: Template, rest) if rest.atEnd() => {
-        generateFinalTemplate(
-          relativePath,
-          content,
-          templateName.dropRight(1).mkString("."),
-          templateName.takeRight(1).mkString,
-          parsed,
-          resultType,
-          formatterType,
-          ScalaCompat(scalaVersion),
-          additionalImports,
-          constructorAnnotations
-        )
-      }
+    templateParser.parse(source) match {
+      case templateParser.Success(parsed: Template, rest) if rest.atEnd() => parsed
       case templateParser.Success(_, rest) => {
         throw new TemplateCompilationError(new File(relativePath), "Not parsed?", rest.pos().line, rest.pos().column)
       }
@@ -453,132 +594,230 @@ object TwirlCompiler {
     }
   }
 
-  protected def displayVisitedChildren(children: collection.Seq[Any]): collection.Seq[Any] = {
-    children.size match {
-      case 0 => Nil
-      case 1 => Nil :+ "_display_(" :+ children :+ ")"
-      case _ => Nil :+ "_display_(Seq[Any](" :+ children :+ "))"
-    }
-  }
-
   private val tripleQuote = "\"" * 3
   // Scala doesn't offer a way to escape triple quoted strings inside triple quoted strings (to my knowledge), so we
   // have to escape them in this rather crude way
   // We need to double escape slashes, since it's a regex replacement
   private val escapedTripleQuote       = "\\\"" * 3
   private val doubleEscapedTripleQuote = "\\\\\"" * 3
-  private val tripleQuoteReplacement   =
+  private val tripleQuoteReplacement =
     escapedTripleQuote + " + \\\"" + doubleEscapedTripleQuote + "\\\" + " + escapedTripleQuote
-  private def quoteAndEscape(text: String): collection.Seq[String] = {
+  private[compiler] def quoteAndEscape(text: String): collection.Seq[String] = {
     Seq(tripleQuote, text.replaceAll(tripleQuote, tripleQuoteReplacement), tripleQuote)
   }
 
+  private def newLines(text: String): Int = {
+    var count = 0
+    var i     = text.indexOf('\n')
+    while (i >= 0) {
+      count += 1
+      i = text.indexOf('\n', i + 1)
+    }
+    count
+  }
+
+  // String literals may not be longer than 65536 bytes. They are encoded as UTF-8 in the classfile, each
+  // UTF-16 2 byte char could end up becoming up to 3 bytes, so that puts an upper limit of somewhere
+  // over 20000 characters. 20000 characters is a nice round number, use that.
+  private val maxStaticLength = 20000
+
+  def visit(elem: collection.Seq[TemplateTree], out: CodeEmitter, resultType: Option[String]): Unit =
+    visit(elem, out, resultType, continued = false)
+
+  @deprecated("Use visit with a CodeEmitter", "2.1.0")
   def visit(
       elem: collection.Seq[TemplateTree],
       previous: collection.Seq[Any],
       resultType: Option[String]
   ): collection.Seq[Any] = {
-    elem.toList match {
-      case head :: tail =>
-        visit(
-          tail,
-          head match {
-            case p @ Plain(text) =>
-              // String literals may not be longer than 65536 bytes. They are encoded as UTF-8 in the classfile, each
-              // UTF-16 2 byte char could end up becoming up to 3 bytes, so that puts an upper limit of somewhere
-              // over 20000 characters. 20000 characters is a nice round number, use that.
-              val grouped = StringGrouper(text, 20000)
-              (if (previous.isEmpty) Nil else previous :+ ",") :+
-                "$twirl__format.raw" :+ Source("(", p.pos) :+ quoteAndEscape(grouped.head) :+ ")" :+
-                grouped.tail.flatMap { t => Seq(",\n$twirl__format.raw(", quoteAndEscape(t), ")") }
-            case Comment(msg) => previous
-            case Display(exp) =>
-              (if (previous.isEmpty) Nil else previous :+ ",") :+ displayVisitedChildren(
-                visit(Seq(exp), Nil, resultType)
-              )
-            case ScalaExp(parts) =>
-              previous :+ parts.map {
-                case s @ Simple(code) => Source(code, s.pos)
-                case b @ Block(whitespace, args, contents) if contents.content.forall(_.isInstanceOf[ScalaExp]) =>
-                  Nil :+ Source(whitespace + "{" + args.getOrElse(""), b.pos) :+ visit(
-                    contents.content,
-                    Nil,
-                    resultType
-                  ) :+ "}"
-                case b @ Block(whitespace, args, contents) if !contents.rich() =>
-                  Nil :+ Source(whitespace + "{" + args.getOrElse(""), b.pos) :+ displayVisitedChildren(
-                    visit(contents.content, Nil, resultType)
-                  ) :+ "}"
-                case b @ Block(whitespace, args, contents) if contents.rich() =>
-                  Nil :+ Source(whitespace + "{" + args.getOrElse(""), b.pos) :+ templateCode(
-                    contents,
-                    resultType
-                  ) :+ "}"
-              }
-            case Reassignment(Left(template)) => {
-              (if (previous.isEmpty) Nil else previous :+ ",") :+ Source(
-                "{" + template.name + " = _display_{",
-                template.pos
-              ) :+ templateCode(template, None) :+ Source("}}", template.pos)
-            }
-            case Reassignment(Right(variable)) => {
-              (if (previous.isEmpty) Nil else previous :+ ",") :+ Source(
-                "{" + variable.name + " = " + variable.code.code + "}",
-                variable.pos
-              )
-            }
-          },
-          resultType
-        )
-      case Nil => previous
+    val out = new CodeEmitter(None, recording = true)
+    visit(elem, out, resultType, continued = previous.nonEmpty)
+    previous ++ out.recordedTokens(hoistStatic = false)
+  }
+
+  /**
+   * Visits the elements, separating them from the code emitted before them if they continue it.
+   */
+  private def visit(
+      elem: collection.Seq[TemplateTree],
+      out: CodeEmitter,
+      resultType: Option[String],
+      continued: Boolean
+  ): Unit = {
+    var first = !continued
+    def separate(): Unit = {
+      if (!first) out.text(',')
+      first = false
+    }
+    elem.foreach {
+      case p @ Plain(text) =>
+        val minified = out.minify(text)
+        val grouped  = StringGrouper(minified, maxStaticLength)
+        separate()
+        out.text("$twirl__format.raw").source("(", p.pos).static(grouped.head).text(")")
+        grouped.tail.foreach { t => out.text(",\n$twirl__format.raw(").static(t).text(")") }
+        // Keep the lines of the generated code aligned with the lines of the template
+        (newLines(minified) until newLines(text)).foreach(_ => out.text('\n'))
+      case Comment(msg) =>
+      case Display(exp) =>
+        separate()
+        displayVisitedChildren(Seq(exp), out, resultType)
+      case ScalaExp(parts) =>
+        first = false
+        parts.foreach {
+          case s @ Simple(code) => out.source(code, s.pos)
+          case b @ Block(whitespace, args, contents) if contents.content.forall(_.isInstanceOf[ScalaExp]) =>
+            out.source(whitespace + "{" + args.getOrElse(""), b.pos)
+            visit(contents.content, out, resultType)
+            out.text("}")
+          case b @ Block(whitespace, args, contents) if !contents.rich() =>
+            out.source(whitespace + "{" + args.getOrElse(""), b.pos)
+            displayVisitedChildren(contents.content, out, resultType)
+            out.text("}")
+          case b @ Block(whitespace, args, contents) if contents.rich() =>
+            out.source(whitespace + "{" + args.getOrElse(""), b.pos)
+            templateCode(contents, resultType, out)
+            out.text("}")
+        }
+      case Reassignment(Left(template)) =>
+        separate()
+        out.source("{" + template.name + " = _display_{", template.pos)
+        out.nested(templateCode(template, None, out))
+        out.source("}}", template.pos)
+      case Reassignment(Right(variable)) =>
+        separate()
+        out.source("{" + variable.name + " = " + variable.code.code + "}", variable.pos)
     }
   }
 
-  def templateCode(template: BaseTemplate, resultType: Option[String]): collection.Seq[Any] = {
-    val defs = (template.sub ++ template.members).sortWith((l, r) => l.pos.<(r.pos)).map {
-      case t: SubTemplate if t.name.toString == "" => templateCode(t, resultType)
-      case t: SubTemplate                          => {
-        Nil :+ (if (t.name.str.startsWith("implicit")) "implicit " else "") :+ t.declaration.fold(
-          isVar => if (isVar) "var " else "def ",
-          valIsLazy => if (valIsLazy) "lazy val " else "val "
-        ) :+ Source(
-          t.name.str,
-          t.name.pos
-        ) :+ Source(
-          t.params.str,
-          t.params.pos
-        ) :+ resultType.map(rt => ":" :+ rt).getOrElse(Nil) :+ " = {_display_{" :+ templateCode(t, resultType) :+ "}};"
-      }
-      case Def(name, params, resultType, block) => {
-        Nil :+ (if (name.str.startsWith("implicit")) "implicit def " else "def ") :+ Source(
-          name.str,
-          name.pos
-        ) :+ Source(
-          params.str,
-          params.pos
-        ) :+ resultType.map(":" + _.str).getOrElse("") :+ " = {" :+ block.code :+ "};"
-      }
-      case Val(name, isLazy, resultType, block) => {
-        Nil :+ (if (name.str.startsWith("implicit")) "implicit " else "") :+ (if (isLazy) "lazy "
-                                                                              else "") :+ "val " :+ Source(
-          name.str,
-          name.pos
-        ) :+ resultType.map(":" + _.str).getOrElse("") :+ " = {" :+ block.code :+ "};"
-      }
-      case Var(name, resultType, block) => {
-        Nil :+ (if (name.str.startsWith("implicit")) "implicit var " else "var ") :+ Source(
-          name.str,
-          name.pos
-        ) :+ resultType.map(":" + _.str).getOrElse("") :+ " = {" :+ block.code :+ "};"
-      }
+  @deprecated("Use visit with a CodeEmitter, which displays the children of blocks", "2.1.0")
+  protected def displayVisitedChildren(children: collection.Seq[Any]): collection.Seq[Any] = {
+    children.size match {
+      case 0 => Nil
+      case 1 => Nil :+ "_display_(" :+ children :+ ")"
+      case _ => Nil :+ "_display_(Seq[Any](" :+ children :+ "))"
+    }
+  }
 
+  /**
+   * Displays the children, as a single value if their code evaluates to one, or as a sequence otherwise. Children that
+   * are all known to evaluate to the result type, like static text and displayed values, are filled directly.
+   */
+  private def displayVisitedChildren(
+      children: collection.Seq[TemplateTree],
+      out: CodeEmitter,
+      resultType: Option[String]
+  ): Unit = {
+    val displayed = flatten(children)
+    displayed.headOption match {
+      case None =>
+      // Longer texts are displayed as several values
+      case Some(p: Plain) if displayed.size == 1 && p.text.length <= maxStaticLength =>
+        visit(displayed, out, resultType)
+      case Some(_: Display) if displayed.size == 1 =>
+        visit(displayed, out, resultType)
+      case Some(_: ScalaExp | Reassignment(Right(_))) if displayed.size == 1 =>
+        out.text("_display_(")
+        visit(displayed, out, resultType)
+        out.text(")")
+      case _ if displayed.forall(d => d.isInstanceOf[Plain] || d.isInstanceOf[Display]) =>
+        out.text("_fill_(")
+        visit(displayed, out, resultType)
+        out.text(")")
+      case _ =>
+        out.text("_display_(Seq[Any](")
+        visit(displayed, out, resultType)
+        out.text("))")
     }
+  }
 
-    val imports = formatImports(template.imports)
+  /**
+   * Drops the comments, which generate no code, and merges the plain texts that are then adjacent, such as the braces
+   * around a block of text, so that they are displayed as one.
+   */
+  private def flatten(children: collection.Seq[TemplateTree]): collection.Seq[TemplateTree] = {
+    val flattened = new scala.collection.mutable.ArrayBuffer[TemplateTree](children.size)
+    // The run of plain texts being merged: its first text, and the following ones appended once it has several
+    var first: Plain = null
+    val merged       = new java.lang.StringBuilder
+    def endRun(): Unit = {
+      if (first ne null) {
+        flattened += (if (merged.length == 0) first else Plain(merged.toString).setPos(first.pos))
+        first = null
+        merged.setLength(0)
+      }
+    }
+    children.foreach {
+      case _: Comment =>
+      case p: Plain if first eq null => first = p
+      case p: Plain =>
+        if (merged.length == 0) merged.append(first.text)
+        merged.append(p.text)
+      case child =>
+        endRun()
+        flattened += child
+    }
+    endRun()
+    flattened
+  }
+
+  @deprecated("Use templateCode with a CodeEmitter", "2.1.0")
+  def templateCode(template: BaseTemplate, resultType: Option[String]): collection.Seq[Any] = {
+    val out = new CodeEmitter(None, recording = true)
+    templateCode(template, resultType, out)
+    out.recordedTokens(hoistStatic = false)
+  }
 
-    Nil :+ imports :+ "\n" :+ defs :+ "\n" :+ "Seq[Any](" :+ visit(template.content, Nil, resultType) :+ ")"
+  def templateCode(template: BaseTemplate, resultType: Option[String], out: CodeEmitter): Unit = {
+    formatImports(template.imports, out)
+    out.text("\n")
+    (template.sub ++ template.members).sortWith((l, r) => l.pos.<(r.pos)).foreach {
+      case t: SubTemplate if t.name.toString == "" => templateCode(t, resultType, out)
+      case t: SubTemplate =>
+        out
+          .text(if (t.name.str.startsWith("implicit")) "implicit " else "")
+          .text(
+            t.declaration.fold(isVar => if (isVar) "var " else "def ", isLazy => if (isLazy) "lazy val " else "val ")
+          )
+          .source(t.name.str, t.name.pos)
+          .source(t.params.str, t.params.pos)
+          .text(resultType.map(":" + _).getOrElse(""))
+          .text(" = {_display_{")
+        out.nested(templateCode(t, resultType, out))
+        out.text("}};")
+      case Def(name, params, resultType, block) =>
+        out
+          .text(if (name.str.startsWith("implicit")) "implicit def " else "def ")
+          .source(name.str, name.pos)
+          .source(params.str, params.pos)
+          .text(resultType.map(":" + _.str).getOrElse(""))
+          .text(" = {")
+          .text(block.code)
+          .text("};")
+      case Val(name, isLazy, resultType, block) =>
+        out
+          .text(if (name.str.startsWith("implicit")) "implicit " else "")
+          .text(if (isLazy) "lazy " else "")
+          .text("val ")
+          .source(name.str, name.pos)
+          .text(resultType.map(":" + _.str).getOrElse(""))
+          .text(" = {")
+          .text(block.code)
+          .text("};")
+      case Var(name, resultType, block) =>
+        out
+          .text(if (name.str.startsWith("implicit")) "implicit var " else "var ")
+          .source(name.str, name.pos)
+          .text(resultType.map(":" + _.str).getOrElse(""))
+          .text(" = {")
+          .text(block.code)
+          .text("};")
+    }
+    out.text("\n")
+    displayVisitedChildren(template.content, out, resultType)
   }
 
+  @deprecated("Use generateFinalTemplate", "2.1.0")
   def generateCode(
       packageName: String,
       name: String,
@@ -587,16 +826,21 @@ object TwirlCompiler {
       formatterType: String,
       additionalImports: collection.Seq[String],
       constructorAnnotations: collection.Seq[String]
-  ): collection.Seq[Any] = generateCode(
-    packageName,
-    name,
-    root,
-    resultType,
-    formatterType,
-    ScalaCompat(None),
-    additionalImports,
-    constructorAnnotations
-  )
+  ): collection.Seq[Any] = {
+    val out = new CodeEmitter(None, recording = true)
+    generateCode(
+      packageName,
+      name,
+      root,
+      resultType,
+      formatterType,
+      ScalaCompat(None),
+      additionalImports,
+      constructorAnnotations,
+      out
+    )
+    out.recordedTokens(hoistStatic = true)
+  }
 
   private def generateCode(
       packageName: String,
@@ -606,56 +850,75 @@ object TwirlCompiler {
       formatterType: String,
       scalaCompat: ScalaCompat,
       additionalImports: collection.Seq[String],
-      constructorAnnotations: collection.Seq[String]
-  ): collection.Seq[Any] = {
+      constructorAnnotations: collection.Seq[String],
+      out: CodeEmitter
+  ): CodeEmitter = {
     val (renderCall, f, templateType) =
       TemplateAsFunctionCompiler.getFunctionMapping(root.params.str, resultType, scalaCompat)
 
-    // Get the imports that we need to include, filtering out empty imports
-    val imports: Seq[Any] = Seq(additionalImports.map(i => Seq("import ", i, "\n")), formatImports(root.topImports))
-
-    val classDeclaration = root.constructor.fold[Seq[Any]](
-      Seq("object ", name)
-    ) { constructor =>
-      Vector.empty :+ "/*" :+ constructor.comment.fold("")(_.msg) :+ """*/
-class """ :+ name :+ " " :+ constructorAnnotations :+ " " :+ Source(constructor.params.str, constructor.params.pos)
-    }
-
-    val generated = {
-      Vector.empty :+ """
-package """ :+ packageName :+ """
+    out.text("\npackage ").text(packageName).text("\n\n")
 
-""" :+ imports :+ """
-""" :+ classDeclaration :+ """ extends _root_.play.twirl.api.BaseScalaTemplate[""" :+ resultType :+ """,_root_.play.twirl.api.Format[""" :+ resultType :+ """]](""" :+ formatterType :+ """)""" :+
-        (if (templateType.nonEmpty) s" with $templateType" else "") :+ """ {
-
-  /*""" :+ root.comment.map(_.msg).getOrElse("") :+ """*/
-  def apply""" :+ Source(root.params.str, root.params.pos) :+ """:""" :+ resultType :+ """ = {
-    _display_ {
-      {
-""" :+ templateCode(root, Some(resultType)) :+ """
-      }
+    // Get the imports that we need to include, filtering out empty imports
+    additionalImports.foreach(i => out.text("import ").text(i).text("\n"))
+    formatImports(root.topImports, out)
+    out.text("\n")
+
+    root.constructor match {
+      case None => out.text("object ").text(name)
+      case Some(constructor) =>
+        out.text("/*").text(constructor.comment.fold("")(_.msg)).text("*/\nclass ").text(name).text(" ")
+        constructorAnnotations.foreach(out.text(_))
+        out.text(" ").source(constructor.params.str, constructor.params.pos)
     }
-  }
-
-  """ :+ renderCall :+ """
-
-  """ :+ f :+ """
 
-  def ref: this.type = this
-
-}
-
-"""
+    out
+      .text(" extends _root_.play.twirl.api.BaseScalaTemplate[")
+      .text(resultType)
+      .text(",_root_.play.twirl.api.Format[")
+      .text(resultType)
+      .text("]](")
+      .text(formatterType)
+      .text(")")
+      .text(if (templateType.nonEmpty) s" with $templateType" else "")
+      .text(" {\n\n  /*")
+      .text(root.comment.map(_.msg).getOrElse(""))
+      .text("*/\n  def apply")
+      .source(root.params.str, root.params.pos)
+      .text(":")
+      .text(resultType)
+      .text(" = {\n    _endRender_(\"")
+      .text(packageName)
+      .text(".")
+      .text(name)
+      .text("\", _startRender_(), _display_ {\n      {\n")
+
+    // Static content is emitted as references to constants, so that the text is only wrapped and encoded once, when
+    // the template is loaded
+    templateCode(root, Some(resultType), out)
+
+    out
+      .text("\n      }\n    })\n  }\n\n  ")
+      .text(renderCall)
+      .text("\n\n  ")
+      .text(f)
+      .text("\n\n  def ref: this.type = this\n\n")
+    out.staticConstants.foreach { case (text, name) =>
+      out.text("  private val ").text(name).text(" = _root_.play.twirl.api.StaticText(")
+      quoteAndEscape(text).foreach(out.text(_))
+      out.text(")\n")
     }
-
-    generated
+    out.text("\n}\n\n")
   }
 
+  @deprecated("Use formatImports with a CodeEmitter", "2.1.0")
   def formatImports(imports: collection.Seq[Simple]): collection.Seq[Any] = {
     imports.map(i => Seq(Source(i.code, i.pos), "\n"))
   }
 
+  def formatImports(imports: collection.Seq[Simple], out: CodeEmitter): Unit = {
+    imports.foreach(i => out.source(i.code, i.pos).text("\n"))
+  }
+
   def formatImports(templateImports: Seq[String], extension: String): Seq[String] = {
     templateImports.map(_.replace("%format%", extension))
   }
@@ -680,7 +943,8 @@ package """ :+ packageName :+ """
     formatterType,
     ScalaCompat(None),
     additionalImports,
-    constructorAnnotations
+    constructorAnnotations,
+    minify = false
   )
 
   private def generateFinalTemplate(
@@ -693,7 +957,8 @@ package """ :+ packageName :+ """
       formatterType: String,
       scalaCompat: ScalaCompat,
       additionalImports: collection.Seq[String],
-      constructorAnnotations: collection.Seq[String]
+      constructorAnnotations: collection.Seq[String],
+      minify: Boolean
   ): String = {
     val generated =
       generateCode(
@@ -704,12 +969,22 @@ package """ :+ packageName :+ """
         formatterType,
         scalaCompat,
         additionalImports,
-        constructorAnnotations
+        constructorAnnotations,
+        new CodeEmitter(if (minify) Some(new MarkupMinifier) else None)
       )
 
-    Source.finalSource(relativePath, contents, generated, Hash(contents, additionalImports))
+    Source.finalSource(relativePath, generated, Hash(contents, hashedOptions(additionalImports, minify)))
   }
 
+  /**
+   * The options that the hash of a generated source covers: the imports, and whether the template is minified.
+   */
+  private def hashedOptions(additionalImports: collection.Seq[String], minify: Boolean): collection.Seq[String] =
+    if (minify) additionalImports :+ MinifiedOption else additionalImports
+
+  // Not a valid import, so it can't be mistaken for one
+  private val MinifiedOption = "-- minified --"
+
   object TemplateAsFunctionCompiler {
     import scala.meta._
     import scala.meta.inputs.Input
@@ -825,49 +1100,38 @@ package """ :+ packageName :+ """
 
 case class Source(code: String, pos: Position = NoPosition)
 
+/**
+ * Static template text. Generated templates hoist it into a constant, if serialized as is it becomes a string literal.
+ */
+case class StaticContent(text: String)
+
 object Source {
-  import scala.collection.mutable.ListBuffer
 
   def finalSource(
       relativePath: String,
       contents: Array[Byte],
       generatedTokens: collection.Seq[Any],
       hash: String
-  ): String = {
-    val scalaCode = new StringBuilder
-    val positions = ListBuffer.empty[(Int, Int)]
-    val lines     = ListBuffer.empty[(Int, Int)]
-    serialize(generatedTokens, scalaCode, positions, lines)
-    scalaCode.toString + s"""
-              /*
-                  -- GENERATED --
-                  SOURCE: ${relativePath.replace(File.separator, "/")}
-                  HASH: $hash
-                  MATRIX: ${positions.map(pos => s"${pos._1}->${pos._2}").mkString("|")}
-                  LINES: ${lines.map(line => s"${line._1}->${line._2}").mkString("|")}
-                  -- GENERATED --
-              */
-          """
-  }
-
-  private def serialize(
-      parts: collection.Seq[Any],
-      source: StringBuilder,
-      positions: ListBuffer[(Int, Int)],
-      lines: ListBuffer[(Int, Int)]
-  ): Unit = {
-    parts.foreach {
-      case c: Character                                  => source.append(c)
-      case s: String                                     => source.append(s)
-      case Source(code, pos @ OffsetPosition(_, offset)) => {
-        source.append("/*" + pos + "*/")
-        positions += (source.length                -> offset)
-        lines += (source.toString.split('\n').size -> pos.line)
-        source.append(code)
-      }
-      case Source(code, NoPosition) => source.append(code)
-      case s: collection.Seq[any]   => serialize(s, source, positions, lines)
-    }
+  ): String = finalSource(relativePath, new CodeEmitter().tokens(generatedTokens), hash)
+
+  /**
+   * Appends to the generated code a footer with the metadata needed to map it back to the template. Nothing should be
+   * emitted afterwards.
+   */
+  def finalSource(relativePath: String, generated: CodeEmitter, hash: String): String = {
+    val scalaCode = generated.code
+    scalaCode
+      .append("\n              /*\n                  -- GENERATED --\n                  SOURCE: ")
+      .append(relativePath.replace(File.separator, "/"))
+      .append("\n                  HASH: ")
+      .append(hash)
+      .append("\n                  MATRIX: ")
+    generated.positions.appendTo(scalaCode)
+    scalaCode.append("\n                  LINES: ")
+    generated.lines.appendTo(scalaCode)
+    scalaCode
+      .append("\n                  -- GENERATED --\n              */\n          ")
+      .toString
   }
 }
 
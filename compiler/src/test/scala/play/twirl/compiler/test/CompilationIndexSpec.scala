@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.twirl.compiler
+package test
+
+import java.io.File
+import java.nio.file.Files
+import play.twirl.parser.TwirlIO
+import org.scalatest.BeforeAndAfterEach
+import org.scalatest.matchers.must.Matchers
+import org.scalatest.wordspec.AnyWordSpec
+import scala.io.Codec
+
+class CompilationIndexSpec extends AnyWordSpec with Matchers with BeforeAndAfterEach {
+
+  private var sourceDir: File    = _
+  private var generatedDir: File = _
+
+  override def beforeEach(): Unit = {
+    sourceDir = Files.createTempDirectory("twirl-sources").toFile
+    generatedDir = Files.createTempDirectory("twirl-generated").toFile
+  }
+
+  override def afterEach(): Unit = {
+    TwirlIO.deleteRecursively(sourceDir)
+    TwirlIO.deleteRecursively(generatedDir)
+  }
+
+  private def template(name: String, content: String): File = {
+    val file = new File(sourceDir, name)
+    TwirlIO.writeStringToFile(file, content, Codec.UTF8)
+    file
+  }
+
+  private def compile(source: File, index: CompilationIndex, imports: Seq[String] = Nil): Option[File] =
+    TwirlCompiler.compile(
+      source,
+      sourceDir,
+      generatedDir,
+      "play.twirl.api.HtmlFormat",
+      CompileOptions(additionalImports = imports, codec = Codec.UTF8, index = Some(index))
+    )
+
+  private def compileAndSave(source: File, imports: Seq[String] = Nil): Option[File] = {
+    val index = CompilationIndex.load(generatedDir)
+    try compile(source, index, imports)
+    finally index.save()
+  }
+
+  "CompilationIndex" should {
+    "skip templates that didn't change since the last build" in {
+      val source = template("a.scala.html", "@(name: String)\nHello @name")
+      compileAndSave(source) must not be empty
+      new File(generatedDir, CompilationIndex.FileName).isFile mustBe true
+      compileAndSave(source) mustBe empty
+    }
+
+    "skip templates that were touched without changing" in {
+      val source = template("a.scala.html", "@(name: String)\nHello @name")
+      compileAndSave(source)
+      source.setLastModified(source.lastModified + 10000)
+      compileAndSave(source) mustBe empty
+      compileAndSave(source) mustBe empty
+    }
+
+    "recompile templates whose content changed" in {
+      val source = template("a.scala.html", "@(name: String)\nHello @name")
+      compileAndSave(source)
+      template("a.scala.html", "@(name: String)\nHallo @name")
+      source.setLastModified(source.lastModified + 10000)
+      compileAndSave(source) must not be empty
+    }
+
+    "recompile templates whose imports changed" in {
+      val source = template("a.scala.html", "@(name: String)\nHello @name")
+      compileAndSave(source)
+      compileAndSave(source, Seq("import java.util._")) must not be empty
+      compileAndSave(source, Seq("import java.util._")) mustBe empty
+    }
+
+    "recompile templates whose generated source was deleted" in {
+      val source    = template("a.scala.html", "@(name: String)\nHello @name")
+      val generated = compileAndSave(source).get
+      generated.delete()
+      compileAndSave(source) must not be empty
+      generated.isFile mustBe true
+    }
+
+    "adopt generated sources compiled without an index" in {
+      val source = template("a.scala.html", "@(name: String)\nHello @name")
+      TwirlCompiler.compile(source, sourceDir, generatedDir, "play.twirl.api.HtmlFormat", codec = Codec.UTF8)
+      compileAndSave(source) mustBe empty
+      CompilationIndex.load(generatedDir).sync(Seq.empty) mustBe empty
+    }
+
+    "delete the generated sources of deleted templates" in {
+      val kept      = template("a.scala.html", "@()\nA")
+      val deleted   = template("b.scala.html", "@()\nB")
+      val index     = CompilationIndex.load(generatedDir)
+      val generated = Seq(compile(kept, index).get, compile(deleted, index).get)
+      index.save()
+      deleted.delete()
+
+      val reloaded = CompilationIndex.load(generatedDir)
+      reloaded.sync(generated) mustBe empty
+      generated(0).isFile mustBe true
+      generated(1).exists mustBe false
+    }
+
+    "return the generated sources it doesn't know about" in {
+      val unknown = new File(generatedDir, "html/c.template.scala")
+      TwirlIO.writeStringToFile(unknown, "// generated elsewhere", Codec.UTF8)
+      CompilationIndex.load(generatedDir).sync(Seq(unknown)) mustBe Seq(unknown)
+    }
+
+    "treat a corrupted index as empty" in {
+      val source = template("a.scala.html", "@(name: String)\nHello @name")
+      compileAndSave(source)
+      TwirlIO.writeStringToFile(new File(generatedDir, CompilationIndex.FileName), "garbage", Codec.UTF8)
+      CompilationIndex.load(generatedDir).sync(Seq.empty) mustBe empty
+      compileAndSave(source) mustBe empty
+    }
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.twirl.compiler
+package test
+
+import java.io.File
+import java.nio.file.Files
+import jdk.jfr.Recording
+import jdk.jfr.consumer.RecordingFile
+import play.twirl.parser.TwirlIO
+import org.scalatest.BeforeAndAfterEach
+import org.scalatest.matchers.must.Matchers
+import org.scalatest.wordspec.AnyWordSpec
+import scala.io.Codec
+
+class CompilationProfileSpec extends AnyWordSpec with Matchers with BeforeAndAfterEach {
+
+  private var sourceDir: File    = _
+  private var generatedDir: File = _
+
+  override def beforeEach(): Unit = {
+    sourceDir = Files.createTempDirectory("twirl-sources").toFile
+    generatedDir = Files.createTempDirectory("twirl-generated").toFile
+  }
+
+  override def afterEach(): Unit = {
+    TwirlIO.deleteRecursively(sourceDir)
+    TwirlIO.deleteRecursively(generatedDir)
+  }
+
+  private def template(name: String, content: String): File = {
+    val file = new File(sourceDir, name)
+    TwirlIO.writeStringToFile(file, content, Codec.UTF8)
+    file
+  }
+
+  private def compile(source: File, index: CompilationIndex, profile: CompilationProfile): Option[File] =
+    TwirlCompiler.compile(
+      source,
+      sourceDir,
+      generatedDir,
+      "play.twirl.api.HtmlFormat",
+      CompileOptions(codec = Codec.UTF8, index = Some(index), profile = Some(profile))
+    )
+
+  "CompilationProfile" should {
+    "record the compiled templates" in {
+      val small   = template("small.scala.html", "@(name: String)\nHello @name")
+      val big     = template("big.scala.html", "@(name: String)\n" + ("<p>@name</p>\n" * 200))
+      val index   = CompilationIndex.load(generatedDir)
+      val profile = new CompilationProfile
+      compile(small, index, profile) must not be empty
+      compile(big, index, profile) must not be empty
+      compile(small, index, profile) mustBe None
+
+      profile.timings.map(_.source) mustBe Seq(big, small)
+      profile.biggest(1).map(_.source) mustBe Seq(big)
+      profile.slowest(5).map(_.source).toSet mustBe Set(big, small)
+      val timing = profile.timings.head
+      timing.totalNanos mustBe timing.readNanos + timing.parseNanos + timing.generateNanos + timing.writeNanos
+      timing.generatedBytes mustBe new File(generatedDir, "html/big.template.scala").length
+    }
+
+    "write a JSON report" in {
+      val profile = new CompilationProfile
+      profile.record(CompilationProfile.TemplateTiming(new File("a \"quoted\".scala.html"), 1000000, 2, 3, 4, 42))
+      profile.record(CompilationProfile.TemplateTiming(new File("b.scala.html"), 0, 0, 0, 0, 100))
+      val json = profile.toJson(1)
+      json must include("\"templates\": 2")
+      json must include("\"totalMillis\": 1.000")
+      json must include(
+        "\"slowest\": [\n    {\"source\": \"a \\\"quoted\\\".scala.html\", \"totalMillis\": 1.000, \"readMillis\": 1.000"
+      )
+      json must include("\"biggest\": [\n    {\"source\": \"b.scala.html\"")
+      json must include("\"generatedBytes\": 100}\n  ]\n}")
+
+      val report = new File(generatedDir, "reports/profile.json")
+      profile.writeReport(report, CompilationProfile.DefaultTop)
+      TwirlIO.readFileAsString(report, Codec.UTF8) mustBe profile.toJson(CompilationProfile.DefaultTop)
+      new CompilationProfile().toJson(5) mustBe
+        "{\n  \"templates\": 0,\n  \"totalMillis\": 0.000,\n  \"slowest\": [],\n  \"biggest\": []\n}\n"
+    }
+  }
+
+  "TwirlCompiler" should {
+    "record compilations as flight recorder events" in {
+      val source    = template("recorded.scala.html", "@(name: String)\nHello @name")
+      val file      = Files.createTempFile("twirl", ".jfr")
+      val recording = new Recording()
+      recording.enable("play.twirl.TemplateCompile")
+      recording.start()
+      compile(source, CompilationIndex.load(generatedDir), new CompilationProfile) must not be empty
+      recording.stop()
+      recording.dump(file)
+      recording.close()
+
+      val recorded = RecordingFile.readAllEvents(file)
+      val events   = (0 until recorded.size).map(recorded.get).filter(_.getString("source") == source.getPath)
+      Files.delete(file)
+      events.size mustBe 1
+      events.head.getLong("generatedBytes") mustBe new File(generatedDir, "html/recorded.template.scala").length
+    }
+  }
+}
@@ -6,7 +6,9 @@ package play.twirl.compiler
 package test
 
 import java.io._
+import play.twirl.api.FragmentCache
 import play.twirl.api.Html
+import play.twirl.api.RenderListener
 import play.twirl.parser.TwirlIO
 import org.scalatest.matchers.must.Matchers
 import org.scalatest.wordspec.AnyWordSpec
@@ -101,6 +103,18 @@ class CompilerSpec extends AnyWordSpec with Matchers with BeforeAndAfterEach {
       result must be("<h1>Hello World!</h1><h1>xml</h1>")
     }
 
+    "compile successfully (render listener)" in {
+      val helper   = newCompilerHelper
+      val template = helper.compile[((String) => Html)]("hello.scala.html", "html.hello").static
+      var rendered = List.empty[String]
+      val listener: RenderListener =
+        (name: String, _: Long) => if (name == "html.hello") synchronized(rendered ::= name)
+      RenderListener.register(listener)
+      try template("World")
+      finally RenderListener.unregister(listener)
+      rendered mustBe List("html.hello")
+    }
+
     "compile successfully (helloNull)" in {
       val helper = newCompilerHelper
       val result =
@@ -225,6 +239,25 @@ class CompilerSpec extends AnyWordSpec with Matchers with BeforeAndAfterEach {
       text must be("<h1>Hello World!</h1>")
     }
 
+    "compile successfully (lazy and memoized fragments)" in {
+      val helper = newCompilerHelper
+      val template = helper
+        .compile[((java.util.concurrent.atomic.AtomicInteger, FragmentCache) => Html)](
+          "fragments.scala.html",
+          "html.fragments"
+        )
+        .static
+      val counter = new java.util.concurrent.atomic.AtomicInteger
+      val cache   = new FragmentCache(16)
+
+      val first = template(counter, cache)
+      counter.get mustBe 0
+      first.body.trim mustBe "<nav>1</nav>\n<footer>2</footer>"
+      counter.get mustBe 2
+      template(counter, cache).body.trim mustBe "<nav>3</nav>\n<footer>2</footer>"
+      counter.get mustBe 3
+    }
+
     "compile successfully (if/else/elseIf)" when {
       "input is in if clause" in {
         val helper = newCompilerHelper
@@ -1046,7 +1079,7 @@ class CompilerSpec extends AnyWordSpec with Matchers with BeforeAndAfterEach {
         the[CompilationError] thrownBy helper.compile[(() => Html)]("temporary.scala.html", "html.temporary") must have(
           Symbol("line")(9),
           Symbol("message")(msg),
-          Symbol("point")(203)
+          Symbol("point")(209)
         )
       }
 
@@ -1723,6 +1756,34 @@ class CompilerSpec extends AnyWordSpec with Matchers with BeforeAndAfterEach {
       result mustBe input
     }
 
+    "hoist static text into pre-encoded constants" in {
+      val helper = newCompilerHelper
+      val result = helper.compile[((String) => Html)]("hello.scala.html", "html.hello").static("World")
+
+      val generatedFile = helper.generatedDir.toPath.resolve("html/hello.template.scala").toFile
+      val generatedText = Source.fromFile(generatedFile).getLines().mkString("\n")
+
+      generatedText must include("$twirl__static_0 = _root_.play.twirl.api.StaticText(\"\"\"\n<h1>Hello \"\"\")")
+      generatedText must include("$twirl__format.raw/*6.1*/($twirl__static_0\n)")
+
+      val out = new java.io.ByteArrayOutputStream()
+      result.writeTo(out, java.nio.charset.StandardCharsets.UTF_8)
+      new String(out.toByteArray, java.nio.charset.StandardCharsets.UTF_8) mustBe result.body
+    }
+
+    "merge adjacent static text and fill typed content directly" in {
+      val helper = newCompilerHelper
+      val result = helper.compile[((Int) => Html)]("elseIf.scala.html", "html.elseIf").static(1)
+
+      val generatedFile = helper.generatedDir.toPath.resolve("html/elseIf.template.scala").toFile
+      val generatedText = Source.fromFile(generatedFile).getLines().mkString("\n")
+
+      generatedText must include("_root_.play.twirl.api.StaticText(\"\"\"\n    world\n\"\"\")")
+      generatedText must include("_fill_(")
+      generatedText.contains("Seq[Any]") mustBe false
+      result.toString.trim mustBe "world"
+    }
+
     "allow rendering a template twice" in {
       val helper = newCompilerHelper
       val inner  = helper
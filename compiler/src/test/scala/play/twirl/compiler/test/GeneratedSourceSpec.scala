@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.twirl.compiler
+package test
+
+import java.io.File
+import java.nio.file.Files
+import play.twirl.parser.TreeNodes
+import play.twirl.parser.TwirlIO
+import play.twirl.parser.TwirlParser
+import org.scalatest.matchers.must.Matchers
+import org.scalatest.wordspec.AnyWordSpec
+import scala.io.Codec
+
+class GeneratedSourceSpec extends AnyWordSpec with Matchers {
+
+  private def footer(matrix: String, lines: String): String =
+    s"""object x
+       |/*
+       |    -- GENERATED --
+       |    SOURCE: a.scala.html
+       |    HASH: abc
+       |    MATRIX: $matrix
+       |    LINES: $lines
+       |    -- GENERATED --
+       |*/
+       |""".stripMargin
+
+  private def generated(matrix: String, lines: String = "1->1"): GeneratedSourceVirtual = {
+    val source = GeneratedSourceVirtual("a.template.scala")
+    source.setContent(footer(matrix, lines))
+    source
+  }
+
+  "GeneratedSource" should {
+    "map positions relative to the last pair at or before them" in {
+      val source = generated("10->1|20->5|40->30")
+      source.matrix mustBe Seq(10 -> 1, 20 -> 5, 40 -> 30)
+      source.mapPosition(5) mustBe 0
+      source.mapPosition(10) mustBe 1
+      source.mapPosition(15) mustBe 6
+      source.mapPosition(20) mustBe 5
+      source.mapPosition(39) mustBe 24
+      source.mapPosition(45) mustBe 35
+    }
+
+    "map lines" in {
+      val source = generated("10->1", "3->1|8->2|8->3|12->7")
+      source.mapLine(2) mustBe 0
+      source.mapLine(8) mustBe 3
+      source.mapLine(9) mustBe 4
+      source.mapLine(20) mustBe 15
+    }
+
+    "read corrupted pairs as 0->0" in {
+      val source = generated("10->1|oops|30->x|40->30")
+      source.matrix mustBe Seq(10 -> 1, 0 -> 0, 0 -> 0, 40 -> 30)
+      source.mapPosition(5) mustBe 0
+      source.mapPosition(15) mustBe 15
+      source.mapPosition(45) mustBe 35
+    }
+
+    "decode the metadata of a file again only once it is modified" in {
+      val file = Files.createTempFile("twirl", ".template.scala").toFile
+      try {
+        TwirlIO.writeStringToFile(file, footer("10->1", "1->1"), Codec.UTF8)
+        GeneratedSource(file).mapPosition(12) mustBe 3
+        GeneratedSource(file).mapPosition(12) mustBe 3
+
+        TwirlIO.writeStringToFile(file, footer("10->7", "1->1"), Codec.UTF8)
+        file.setLastModified(file.lastModified + 10000)
+        GeneratedSource(file).mapPosition(12) mustBe 9
+      } finally {
+        file.delete()
+      }
+    }
+
+    "record the offset and line of every positioned token" in {
+      val template  = TwirlIO.readFileAsString(new File("compiler/src/test/resources/real.scala.html"))
+      val generated = GeneratedSourceVirtual("real.template.scala")
+      generated.setContent(
+        TwirlCompiler.parseAndGenerateCode(
+          Array("html", "real"),
+          template.getBytes("UTF-8"),
+          Codec.UTF8,
+          "real.scala.html",
+          "play.twirl.api.HtmlFormat.Appendable",
+          "play.twirl.api.HtmlFormat",
+          TwirlCompiler.defaultImports("2.13.18"),
+          Nil,
+          inclusiveDot = false
+        )
+      )
+      val code = generated.content.substring(0, generated.content.indexOf("-- GENERATED --"))
+      generated.matrix must not be empty
+      generated.matrix.size mustBe generated.lines.size
+      generated.matrix.zip(generated.lines).foreach { case ((offset, _), (line, _)) =>
+        code.substring(0, offset) must endWith("*/")
+        line mustBe code.substring(0, offset).split('\n').size
+      }
+    }
+
+    "be generated the same from the tokens of the deprecated code generators" in {
+      val template = TwirlIO.readFileAsString(new File("compiler/src/test/resources/real.scala.html"))
+      val parser   = new TwirlParser(false)
+      val root = parser.parse(template) match {
+        case parser.Success(root: TreeNodes.Template, _) => root
+        case other                                       => fail(other.toString)
+      }
+      val imports  = TwirlCompiler.defaultImports("2.13.18")
+      val format   = "play.twirl.api.HtmlFormat"
+      val tokens   = TwirlCompiler.generateCode("html", "real", root, s"$format.Appendable", format, imports, Nil)
+      val contents = template.getBytes("UTF-8")
+      Source.finalSource("real.scala.html", contents, tokens, Hash(contents, imports)) mustBe
+        TwirlCompiler.generateFinalTemplate(
+          "real.scala.html",
+          contents,
+          "html",
+          "real",
+          root,
+          s"$format.Appendable",
+          format,
+          imports,
+          Nil
+        )
+    }
+
+    "have no metadata if the file doesn't exist" in {
+      GeneratedSource(new File("does-not-exist.template.scala")).meta mustBe empty
+    }
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.twirl.compiler
+package test
+
+import java.io.File
+import java.nio.file.Files
+import play.twirl.parser.TwirlIO
+import org.scalatest.BeforeAndAfterEach
+import org.scalatest.matchers.must.Matchers
+import org.scalatest.wordspec.AnyWordSpec
+import scala.io.Codec
+
+class MarkupMinifierSpec extends AnyWordSpec with Matchers with BeforeAndAfterEach {
+
+  private def minify(texts: String*): Seq[String] = {
+    val minifier = new MarkupMinifier
+    texts.map(minifier.minify)
+  }
+
+  "MarkupMinifier" should {
+    "collapse whitespace and trim indentation" in {
+      minify("<ul>\n    <li>a  b</li>\n\n    <li>\tc</li>\n</ul>\n") mustBe
+        Seq("<ul>\n<li>a b</li>\n<li> c</li>\n</ul>\n")
+      minify("<p\n   class=\"x\"   id='y'  >") mustBe Seq("<p\nclass=\"x\" id='y' >")
+    }
+
+    "drop comments" in {
+      minify("<p>\n  <!-- a comment -->\n  text</p>") mustBe Seq("<p>\ntext</p>")
+      minify("a<!---->b") mustBe Seq("ab")
+    }
+
+    "keep conditional and important comments" in {
+      minify("<!--[if IE]>  <p>old</p>  <![endif]-->  <!--! keep  this -->") mustBe
+        Seq("<!--[if IE]>  <p>old</p>  <![endif]--> <!--! keep  this -->")
+    }
+
+    "keep the content of pre, textarea, script and style elements" in {
+      minify("<PRE class=\"code\">  a\n    b</PRE>  <p>  c</p>") mustBe
+        Seq("<PRE class=\"code\">  a\n    b</PRE> <p> c</p>")
+      minify("<textarea>  x  </textarea>") mustBe Seq("<textarea>  x  </textarea>")
+      minify("<script>\n  if (a  <  b) {}\n</script>\n\n<style>  p  { }  </style>") mustBe
+        Seq("<script>\n  if (a  <  b) {}\n</script>\n<style>  p  { }  </style>")
+      minify("<pre>  </prefix>  </pre>  x") mustBe Seq("<pre>  </prefix>  </pre> x")
+    }
+
+    "keep attribute values and CDATA sections" in {
+      minify("<input value=\"  a  b  \">  <![CDATA[  x  ]]>  y") mustBe
+        Seq("<input value=\"  a  b  \"> <![CDATA[  x  ]]> y")
+    }
+
+    "continue markup across texts" in {
+      minify("<pre>  ", "  </pre>  ") mustBe Seq("<pre>  ", "  </pre> ")
+      minify("<a title=\"  ", "  \"  href=\"#\">  x", "  <!-- a", "  -->  ") mustBe
+        Seq("<a title=\"  ", "  \" href=\"#\"> x", " <!-- a", "  --> ")
+      minify("<br/>  <script />  ", "  x") mustBe Seq("<br/> <script /> ", " x")
+    }
+
+    "minify nested templates as markup of their own" in {
+      val minifier = new MarkupMinifier
+      minifier.minify("<pre>  ") mustBe "<pre>  "
+      minifier.fragment(minifier.minify("  <p>  ") mustBe " <p> ")
+      minifier.minify("  </pre>") mustBe "  </pre>"
+    }
+  }
+
+  private var sourceDir: File    = _
+  private var generatedDir: File = _
+
+  override def beforeEach(): Unit = {
+    sourceDir = Files.createTempDirectory("twirl-sources").toFile
+    generatedDir = Files.createTempDirectory("twirl-generated").toFile
+  }
+
+  override def afterEach(): Unit = {
+    TwirlIO.deleteRecursively(sourceDir)
+    TwirlIO.deleteRecursively(generatedDir)
+  }
+
+  private def compile(name: String, content: String, minify: Boolean, index: CompilationIndex): Option[String] = {
+    val source = new File(sourceDir, name)
+    if (!source.exists) TwirlIO.writeStringToFile(source, content, Codec.UTF8)
+    TwirlCompiler
+      .compile(
+        source,
+        sourceDir,
+        generatedDir,
+        "play.twirl.api.HtmlFormat",
+        CompileOptions(codec = Codec.UTF8, index = Some(index), minify = minify)
+      )
+      .map(TwirlIO.readFileAsString(_, Codec.UTF8))
+  }
+
+  private def line(generated: String, code: String): Int =
+    generated.substring(0, generated.indexOf(code)).count(_ == '\n')
+
+  "TwirlCompiler" should {
+    val content = "@(name: String)\n<div>\n    <!-- greeting -->\n    <h1>Hello   @name</h1>\n\n</div>\n"
+
+    "minify the static text of HTML templates" in {
+      val index     = CompilationIndex.load(generatedDir)
+      val generated = compile("a.scala.html", content, minify = true, index).get
+      generated must include("\"\"\"<div>\n<h1>Hello \"\"\"")
+      generated must include("\"\"\"</h1>\n</div>\n\"\"\"")
+      generated.contains("greeting") mustBe false
+    }
+
+    "keep the lines of the generated code aligned with the template" in {
+      val index    = CompilationIndex.load(generatedDir)
+      val original = compile("a.scala.html", content, minify = false, index).get
+      val minified = compile("a.scala.html", content, minify = true, index).get
+      line(minified, "/*4.") mustBe line(original, "/*4.")
+      line(minified, "def render") mustBe line(original, "def render")
+    }
+
+    "not minify other templates" in {
+      val index     = CompilationIndex.load(generatedDir)
+      val generated = compile("a.scala.txt", "@(name: String)\n<p>  @name  </p>\n", minify = true, index).get
+      generated must include("\"\"\"<p>  \"\"\"")
+      compile("a.scala.txt", "", minify = true, index) mustBe None
+    }
+
+    "compile templates again when minification is switched" in {
+      val index = CompilationIndex.load(generatedDir)
+      compile("a.scala.html", content, minify = false, index) must not be empty
+      compile("a.scala.html", content, minify = false, index) mustBe None
+      compile("a.scala.html", content, minify = true, index) must not be empty
+      compile("a.scala.html", content, minify = true, index) mustBe None
+    }
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.twirl.compiler
+package test
+
+import java.io.File
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import play.twirl.parser.TreeNodes.PosString
+import play.twirl.parser.TreeNodes.Template
+import org.scalatest.matchers.must.Matchers
+import org.scalatest.wordspec.AnyWordSpec
+import scala.io.Codec
+
+class ParseCacheSpec extends AnyWordSpec with Matchers {
+
+  private def compileVirtual(content: String, cache: Option[ParseCache]): String = {
+    val source = new File("app/views/a.scala.html")
+    val generated = cache match {
+      case Some(cache) =>
+        TwirlCompiler.compileVirtual(
+          content,
+          source,
+          new File("app"),
+          "play.twirl.api.HtmlFormat.Appendable",
+          "play.twirl.api.HtmlFormat",
+          None,
+          Nil,
+          Nil,
+          Codec.UTF8,
+          inclusiveDot = false,
+          cache
+        )
+      case None =>
+        TwirlCompiler.compileVirtual(
+          content,
+          source,
+          new File("app"),
+          "play.twirl.api.HtmlFormat.Appendable",
+          "play.twirl.api.HtmlFormat",
+          codec = Codec.UTF8
+        )
+    }
+    generated.content
+  }
+
+  private def parse(cache: ParseCache, source: String, inclusiveDot: Boolean = false): Template =
+    cache.getOrParse(source, inclusiveDot)(Template(None, None, PosString("()"), Nil, Nil, Nil, Nil, Nil))
+
+  "ParseCache" should {
+    "reuse the tree of the same content" in {
+      val cache = new ParseCache(2)
+      val tree  = parse(cache, "a")
+      (parse(cache, "a") eq tree) mustBe true
+      (parse(cache, new String("a")) eq tree) mustBe true
+      (parse(cache, "a", inclusiveDot = true) eq tree) mustBe false
+    }
+
+    "evict the least recently used tree" in {
+      val cache = new ParseCache(2)
+      val a     = parse(cache, "a")
+      val b     = parse(cache, "b")
+      parse(cache, "a")
+      parse(cache, "c")
+      cache.size mustBe 2
+      (parse(cache, "a") eq a) mustBe true
+      (parse(cache, "b") eq b) mustBe false
+    }
+
+    "generate the same code as a parse" in {
+      val cache   = new ParseCache(16)
+      val content = "@(name: String)\n<h1>Hello @name!</h1>\n"
+      val first   = compileVirtual(content, Some(cache))
+      cache.size mustBe 1
+      compileVirtual(content, Some(cache)) mustBe first
+      compileVirtual(content, None) mustBe first
+    }
+
+    "not cache templates that fail to parse" in {
+      val cache = new ParseCache(16)
+      a[TemplateCompilationError] must be thrownBy compileVirtual("@(name: String)\n@if(", Some(cache))
+      cache.size mustBe 0
+    }
+  }
+
+  "TwirlCompiler" should {
+    "parse templates from several threads" in {
+      val templates = (1 to 32).map(i => s"@(name: String)\n<p>$i @name</p>\n@for(i <- 1 to $i) { @i }\n")
+      val expected  = templates.map(compileVirtual(_, None))
+      val executor  = Executors.newFixedThreadPool(4)
+      try {
+        val results = templates.map { t =>
+          executor.submit(new Callable[String] {
+            def call(): String = compileVirtual(t, None)
+          })
+        }
+        results.map(_.get(1, TimeUnit.MINUTES)) mustBe expected
+      } finally {
+        executor.shutdown()
+      }
+    }
+  }
+}
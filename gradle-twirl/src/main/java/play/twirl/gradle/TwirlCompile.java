@@ -4,6 +4,9 @@
 package play.twirl.gradle;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import javax.inject.Inject;
@@ -23,6 +26,7 @@ import org.gradle.api.tasks.Classpath;
 import org.gradle.api.tasks.IgnoreEmptyDirectories;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.OutputDirectory;
 import org.gradle.api.tasks.PathSensitive;
 import org.gradle.api.tasks.PathSensitivity;
@@ -34,6 +38,7 @@ import org.gradle.work.InputChanges;
 import org.gradle.workers.WorkQueue;
 import org.gradle.workers.WorkerExecutor;
 import play.twirl.gradle.internal.TwirlCompileAction;
+import play.twirl.gradle.internal.TwirlTemplate;
 
 /** Gradle task for compiling Twirl templates into Scala code. */
 @CacheableTask
@@ -63,37 +68,120 @@ public abstract class TwirlCompile extends DefaultTask {
   @Input
   public abstract Property<String> getSourceEncoding();
 
+  /** Whether the static text of HTML and XML templates is minified. */
+  @Input
+  public abstract Property<Boolean> getMinify();
+
+  /**
+   * Whether to write a JSON report of the slowest templates to compile and of their biggest
+   * generated sources. Each shard writes the report of its templates.
+   */
+  @Internal
+  public abstract Property<Boolean> getProfile();
+
+  /** Directory the profile reports are written to. */
+  @Internal
+  public abstract DirectoryProperty getProfileReportDirectory();
+
   @Inject
   public abstract WorkerExecutor getWorkerExecutor();
 
+  /**
+   * Maximum number of shards the changed templates are split into. Each shard is compiled by one
+   * work action, so the shards of a large build run in parallel, up to Gradle's {@code
+   * --max-workers}.
+   */
+  @Internal
+  public abstract Property<Integer> getCompileShards();
+
+  /** Isolation of the work actions compiling templates. */
+  @Internal
+  public abstract Property<TwirlIsolationMode> getIsolationMode();
+
   @TaskAction
   void compile(InputChanges changes) {
+    int shardCount = getCompileShards().get();
+    if (shardCount < 1) {
+      throw new GradleException(
+          String.format("The number of compile shards must be positive, but was %d", shardCount));
+    }
+    Map<String, String> templateFormats = getTemplateFormats().get();
+    List<TwirlTemplate> templates = new ArrayList<>();
     for (FileChange change : changes.getFileChanges(getSource())) {
       if (change.getFileType() == FileType.DIRECTORY) continue;
-      WorkQueue workQueue =
-          getWorkerExecutor()
-              .processIsolation(spec -> spec.getClasspath().from(getTwirlClasspath()));
-
-      Map<String, String> templateFormats = getTemplateFormats().get();
       RelativeFile sourceFile =
           new RelativeFile(change.getFile(), RelativePath.parse(true, change.getNormalizedPath()));
+      Entry<String, String> format = getFormat(templateFormats, sourceFile.getFile());
+      templates.add(
+          new TwirlTemplate(
+              change.getChangeType(),
+              sourceFile.getFile(),
+              sourceFile.getBaseDir(),
+              format.getKey(),
+              format.getValue()));
+    }
+    if (templates.isEmpty()) return;
+
+    // Deal the templates out in path order, so shards are of even size and stable between builds
+    templates.sort(Comparator.comparing(TwirlTemplate::getSourceFile));
+    List<List<TwirlTemplate>> shards = new ArrayList<>();
+    for (int i = 0; i < Math.min(shardCount, templates.size()); i++) {
+      shards.add(new ArrayList<>());
+    }
+    for (int i = 0; i < templates.size(); i++) {
+      shards.get(i % shards.size()).add(templates.get(i));
+    }
+
+    boolean profile = getProfile().get();
+    if (profile) {
+      deleteProfileReports();
+    }
+
+    WorkQueue workQueue = createWorkQueue();
+    for (int i = 0; i < shards.size(); i++) {
+      List<TwirlTemplate> shard = shards.get(i);
+      String report = "profile-" + i + ".json";
       workQueue.submit(
           TwirlCompileAction.class,
           parameters -> {
-            parameters.getChangeType().set(change.getChangeType());
-            parameters.getSourceFile().set(sourceFile.getFile());
-            parameters.getSourceDirectory().set(sourceFile.getBaseDir());
+            parameters.getTemplates().set(shard);
             parameters.getDestinationDirectory().set(getDestinationDirectory());
-            Entry<String, String> format = getFormat(templateFormats, sourceFile.getFile());
-            parameters.getFormatExtension().set(format.getKey());
-            parameters.getFormatterType().set(format.getValue());
             parameters.getTemplateImports().set(getTemplateImports());
             parameters.getConstructorAnnotations().set(getConstructorAnnotations());
             parameters.getSourceEncoding().set(getSourceEncoding());
+            parameters.getMinify().set(getMinify());
+            if (profile) {
+              parameters.getProfileReport().set(getProfileReportDirectory().file(report));
+            }
           });
     }
   }
 
+  /** Deletes the reports of a previous run, which may have used more shards. */
+  @SuppressWarnings("ResultOfMethodCallIgnored")
+  private void deleteProfileReports() {
+    File[] reports =
+        getProfileReportDirectory()
+            .get()
+            .getAsFile()
+            .listFiles((dir, name) -> name.startsWith("profile-") && name.endsWith(".json"));
+    if (reports != null) {
+      for (File report : reports) {
+        report.delete();
+      }
+    }
+  }
+
+  private WorkQueue createWorkQueue() {
+    if (getIsolationMode().get() == TwirlIsolationMode.CLASSLOADER) {
+      return getWorkerExecutor()
+          .classLoaderIsolation(spec -> spec.getClasspath().from(getTwirlClasspath()));
+    } else {
+      return getWorkerExecutor()
+          .processIsolation(spec -> spec.getClasspath().from(getTwirlClasspath()));
+    }
+  }
+
   private Entry<String, String> getFormat(Map<String, String> formats, File file) {
     return formats.entrySet().stream()
         .filter(f -> FileUtils.hasExtensionIgnoresCase(file.getName(), f.getKey()))
@@ -21,4 +21,53 @@ public abstract class TwirlExtension {
    * }</pre>
    */
   public abstract Property<String> getScalaVersion();
+
+  /**
+   * Maximum number of shards the changed templates are split into, each compiled by one work action
+   * (the number of available processors by default).
+   *
+   * <pre>{@code
+   * twirl {
+   *   compileShards.set(4)
+   * }
+   * }</pre>
+   */
+  public abstract Property<Integer> getCompileShards();
+
+  /**
+   * Isolation of the work actions compiling templates ({@code PROCESS} by default).
+   *
+   * <pre>{@code
+   * twirl {
+   *   isolationMode.set(play.twirl.gradle.TwirlIsolationMode.CLASSLOADER)
+   * }
+   * }</pre>
+   */
+  public abstract Property<TwirlIsolationMode> getIsolationMode();
+
+  /**
+   * Whether to minify the static text of HTML and XML templates, collapsing whitespace and dropping
+   * comments, except in {@code pre}, {@code textarea}, {@code script} and {@code style} elements
+   * ({@code false} by default).
+   *
+   * <pre>{@code
+   * twirl {
+   *   minify.set(true)
+   * }
+   * }</pre>
+   */
+  public abstract Property<Boolean> getMinify();
+
+  /**
+   * Whether to write a JSON report of the slowest templates to compile and of their biggest
+   * generated sources, one per compile shard, to {@code build/reports/twirl/<sourceSet>} ({@code
+   * false} by default).
+   *
+   * <pre>{@code
+   * twirl {
+   *   profile.set(true)
+   * }
+   * }</pre>
+   */
+  public abstract Property<Boolean> getProfile();
 }
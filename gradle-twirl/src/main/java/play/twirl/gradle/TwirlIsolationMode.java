@@ -0,0 +1,16 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+package play.twirl.gradle;
+
+/** How the Twirl compiler is isolated from the Gradle build while compiling templates. */
+public enum TwirlIsolationMode {
+  /**
+   * Compile in the Gradle daemon, with the Twirl compiler loaded by an isolated class loader.
+   * Avoids starting worker processes, which is usually the fastest option.
+   */
+  CLASSLOADER,
+
+  /** Compile in separate worker daemon processes. */
+  PROCESS
+}
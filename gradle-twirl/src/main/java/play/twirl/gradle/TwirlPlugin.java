@@ -53,10 +53,14 @@ public class TwirlPlugin implements Plugin<Project> {
 
     TwirlExtension twirlExtension = project.getExtensions().create("twirl", TwirlExtension.class);
     twirlExtension.getScalaVersion().convention(DEFAULT_SCALA_VERSION);
+    twirlExtension.getCompileShards().convention(Runtime.getRuntime().availableProcessors());
+    twirlExtension.getIsolationMode().convention(TwirlIsolationMode.PROCESS);
+    twirlExtension.getMinify().convention(false);
+    twirlExtension.getProfile().convention(false);
 
     Configuration twirlConfiguration = createDefaultTwirlConfiguration(project, twirlExtension);
 
-    configureSourceSetDefaults(project, twirlConfiguration);
+    configureSourceSetDefaults(project, twirlExtension, twirlConfiguration);
   }
 
   /** Get Twirl compiler version from Gradle Plugin MANIFEST.MF */
@@ -86,7 +90,9 @@ public class TwirlPlugin implements Plugin<Project> {
   }
 
   private void configureSourceSetDefaults(
-      final Project project, final Configuration twirlConfiguration) {
+      final Project project,
+      final TwirlExtension twirlExtension,
+      final Configuration twirlConfiguration) {
     javaPluginExtension(project)
         .getSourceSets()
         .all(
@@ -106,7 +112,8 @@ public class TwirlPlugin implements Plugin<Project> {
               sourceSet.getAllSource().source(twirlSource);
 
               TaskProvider<TwirlCompile> twirlTask =
-                  createTwirlCompileTask(project, sourceSet, twirlSource, twirlConfiguration);
+                  createTwirlCompileTask(
+                      project, sourceSet, twirlSource, twirlExtension, twirlConfiguration);
 
               extensionOf(sourceSet, ScalaSourceDirectorySet.class).srcDir(twirlTask);
             });
@@ -116,6 +123,7 @@ public class TwirlPlugin implements Plugin<Project> {
       final Project project,
       final SourceSet sourceSet,
       TwirlSourceDirectorySet twirlSource,
+      final TwirlExtension twirlExtension,
       final Configuration twirlConfiguration) {
     return project
         .getTasks()
@@ -132,7 +140,14 @@ public class TwirlPlugin implements Plugin<Project> {
               twirlCompile
                   .getConstructorAnnotations()
                   .convention(twirlSource.getConstructorAnnotations());
+              twirlCompile.getCompileShards().convention(twirlExtension.getCompileShards());
+              twirlCompile.getIsolationMode().convention(twirlExtension.getIsolationMode());
+              twirlCompile.getMinify().convention(twirlExtension.getMinify());
+              twirlCompile.getProfile().convention(twirlExtension.getProfile());
               DirectoryProperty buildDirectory = project.getLayout().getBuildDirectory();
+              twirlCompile
+                  .getProfileReportDirectory()
+                  .convention(buildDirectory.dir("reports/twirl/" + sourceSet.getName()));
               twirlCompile
                   .getDestinationDirectory()
                   .convention(
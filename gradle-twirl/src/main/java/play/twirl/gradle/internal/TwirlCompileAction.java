@@ -5,95 +5,127 @@ package play.twirl.gradle.internal;
 
 import java.io.File;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.work.ChangeType;
 import org.gradle.workers.WorkAction;
 import play.japi.twirl.compiler.TwirlCompiler;
+import play.twirl.compiler.CompilationProfile;
 import play.twirl.compiler.TwirlCompiler$;
 import scala.io.Codec;
 
-/** Gradle work action that compile or delete one Twirl template. */
+/** Gradle work action that compile or delete a shard of Twirl templates. */
 public abstract class TwirlCompileAction implements WorkAction<TwirlCompileParams> {
 
   private static final Logger LOGGER = Logging.getLogger(TwirlCompileAction.class);
 
   @Override
   public void execute() {
-    if (getParameters().getChangeType().get() == ChangeType.REMOVED) {
-      delete();
-    } else {
-      compile();
+    File destinationDirectory = getParameters().getDestinationDirectory().getAsFile().get();
+    Codec codec = Codec.string2codec(getParameters().getSourceEncoding().get());
+    List<String> constructorAnnotations = getParameters().getConstructorAnnotations().get();
+    boolean minify = getParameters().getMinify().get();
+    CompilationProfile profile =
+        getParameters().getProfileReport().isPresent() ? new CompilationProfile() : null;
+    // Sorted once per shard, and formatted once per template format
+    TreeSet<String> imports = new TreeSet<>(getParameters().getTemplateImports().get());
+    imports.addAll(TwirlCompiler.DEFAULT_IMPORTS);
+    Map<String, Collection<String>> importsByExtension = new HashMap<>();
+
+    RuntimeException failure = null;
+    for (TwirlTemplate template : getParameters().getTemplates().get()) {
+      try {
+        if (template.getChangeType() == ChangeType.REMOVED) {
+          delete(template, destinationDirectory, codec);
+        } else {
+          compile(
+              template,
+              destinationDirectory,
+              importsByExtension.computeIfAbsent(
+                  template.getFormatExtension(),
+                  extension -> TwirlCompiler.formatImports(new ArrayList<>(imports), extension)),
+              constructorAnnotations,
+              codec,
+              minify,
+              profile);
+        }
+      } catch (Exception e) {
+        // Keep going, so that all the broken templates of the shard are reported at once
+        LOGGER.error(e.getMessage(), e);
+        if (failure == null) failure = new RuntimeException(e);
+        else failure.addSuppressed(e);
+      }
+    }
+    if (profile != null) writeProfileReport(profile);
+    if (failure != null) throw failure;
+  }
+
+  private void writeProfileReport(CompilationProfile profile) {
+    File report = getParameters().getProfileReport().getAsFile().get();
+    profile.writeReport(report, CompilationProfile.DefaultTop());
+    LOGGER.lifecycle("Wrote the Twirl compilation profile to {}", report);
+    scala.collection.Seq<CompilationProfile.TemplateTiming> slowest = profile.slowest(5);
+    for (int i = 0; i < slowest.size(); i++) {
+      LOGGER.lifecycle("  {}", slowest.apply(i));
     }
   }
 
   @SuppressWarnings("ResultOfMethodCallIgnored")
-  private void delete() {
-    try {
-      File sourceFile = getParameters().getSourceFile().getAsFile().get();
-      File sourceDirectory = getParameters().getSourceDirectory().getAsFile().get();
-      File destinationDirectory = getParameters().getDestinationDirectory().getAsFile().get();
-      String sourceEncoding = getParameters().getSourceEncoding().get();
-      // WA: Need to create a source file temporarily for correct calculate path of compiled
-      // template to delete
-      sourceFile.createNewFile();
-      File compiledTemplate =
-          TwirlCompiler$.MODULE$
-              .generatedFile(
-                  sourceFile,
-                  Codec.string2codec(sourceEncoding),
-                  sourceDirectory,
-                  destinationDirectory,
-                  false)
-              ._2
-              .file();
-      if (LOGGER.isInfoEnabled()) {
-        LOGGER.info("Delete Twirl template {}", compiledTemplate.getCanonicalPath());
-      }
-      // Delete temporary empty source file
-      sourceFile.delete();
-      compiledTemplate.delete();
-    } catch (Exception e) {
-      LOGGER.error(e.getMessage(), e);
-      throw new RuntimeException(e);
+  private void delete(TwirlTemplate template, File destinationDirectory, Codec codec)
+      throws Exception {
+    File sourceFile = template.getSourceFile();
+    // WA: Need to create a source file temporarily for correct calculate path of compiled
+    // template to delete
+    sourceFile.createNewFile();
+    File compiledTemplate =
+        TwirlCompiler$.MODULE$
+            .generatedFile(
+                sourceFile, codec, template.getSourceDirectory(), destinationDirectory, false)
+            ._2
+            .file();
+    if (LOGGER.isInfoEnabled()) {
+      LOGGER.info("Delete Twirl template {}", compiledTemplate.getCanonicalPath());
     }
+    // Delete temporary empty source file
+    sourceFile.delete();
+    compiledTemplate.delete();
   }
 
-  private void compile() {
-    try {
-      File sourceFile = getParameters().getSourceFile().getAsFile().get();
-      File sourceDirectory = getParameters().getSourceDirectory().getAsFile().get();
-      File destinationDirectory = getParameters().getDestinationDirectory().getAsFile().get();
-      String formatterType = getParameters().getFormatterType().get();
-      String extension = getParameters().getFormatExtension().get();
-      getParameters().getTemplateImports().addAll(TwirlCompiler.DEFAULT_IMPORTS);
-      List<String> imports = new ArrayList<>(getParameters().getTemplateImports().get());
-      Collections.sort(imports);
-      List<String> constructorAnnotations = getParameters().getConstructorAnnotations().get();
-      String sourceEncoding = getParameters().getSourceEncoding().get();
-      if (LOGGER.isInfoEnabled()) {
-        LOGGER.info(
-            "Compile Twirl template [{}/{}] {} from {} into {}",
-            formatterType,
-            sourceEncoding,
-            sourceFile.getName(),
-            sourceDirectory.getCanonicalPath(),
-            destinationDirectory.getCanonicalPath());
-      }
-      TwirlCompiler.compile(
-          sourceFile,
-          sourceDirectory,
-          destinationDirectory,
-          formatterType,
-          TwirlCompiler.formatImports(imports, extension),
-          constructorAnnotations,
-          Codec.string2codec(sourceEncoding),
-          false);
-    } catch (Exception e) {
-      LOGGER.error(e.getMessage(), e);
-      throw new RuntimeException(e);
+  private void compile(
+      TwirlTemplate template,
+      File destinationDirectory,
+      Collection<String> imports,
+      List<String> constructorAnnotations,
+      Codec codec,
+      boolean minify,
+      CompilationProfile profile)
+      throws Exception {
+    File sourceFile = template.getSourceFile();
+    File sourceDirectory = template.getSourceDirectory();
+    if (LOGGER.isInfoEnabled()) {
+      LOGGER.info(
+          "Compile Twirl template [{}/{}] {} from {} into {}",
+          template.getFormatterType(),
+          codec.name(),
+          sourceFile.getName(),
+          sourceDirectory.getCanonicalPath(),
+          destinationDirectory.getCanonicalPath());
     }
+    TwirlCompiler.compile(
+        sourceFile,
+        sourceDirectory,
+        destinationDirectory,
+        template.getFormatterType(),
+        imports,
+        constructorAnnotations,
+        codec,
+        false,
+        minify,
+        profile);
   }
 }
@@ -8,27 +8,24 @@ import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.provider.ListProperty;
 import org.gradle.api.provider.Property;
 import org.gradle.api.provider.SetProperty;
-import org.gradle.work.ChangeType;
 import org.gradle.workers.WorkParameters;
 
 /** Parameters of compilation work action. */
 public interface TwirlCompileParams extends WorkParameters {
 
-  Property<ChangeType> getChangeType();
-
-  RegularFileProperty getSourceFile();
-
-  DirectoryProperty getSourceDirectory();
+  /** The shard of changed templates handled by one work action. */
+  ListProperty<TwirlTemplate> getTemplates();
 
   DirectoryProperty getDestinationDirectory();
 
-  Property<String> getFormatterType();
-
-  Property<String> getFormatExtension();
-
   SetProperty<String> getTemplateImports();
 
   ListProperty<String> getConstructorAnnotations();
 
   Property<String> getSourceEncoding();
+
+  Property<Boolean> getMinify();
+
+  /** The file to write the profile report of the shard to, if templates are profiled. */
+  RegularFileProperty getProfileReport();
 }
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+package play.twirl.gradle.internal;
+
+import java.io.File;
+import java.io.Serializable;
+import org.gradle.work.ChangeType;
+
+/** A changed Twirl template to compile or delete, as part of a shard of work. */
+public final class TwirlTemplate implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final ChangeType changeType;
+  private final File sourceFile;
+  private final File sourceDirectory;
+  private final String formatExtension;
+  private final String formatterType;
+
+  public TwirlTemplate(
+      ChangeType changeType,
+      File sourceFile,
+      File sourceDirectory,
+      String formatExtension,
+      String formatterType) {
+    this.changeType = changeType;
+    this.sourceFile = sourceFile;
+    this.sourceDirectory = sourceDirectory;
+    this.formatExtension = formatExtension;
+    this.formatterType = formatterType;
+  }
+
+  public ChangeType getChangeType() {
+    return changeType;
+  }
+
+  public File getSourceFile() {
+    return sourceFile;
+  }
+
+  public File getSourceDirectory() {
+    return sourceDirectory;
+  }
+
+  public String getFormatExtension() {
+    return formatExtension;
+  }
+
+  public String getFormatterType() {
+    return formatterType;
+  }
+}
@@ -34,6 +34,9 @@ class TwirlPluginTest {
     TwirlExtension ext = (TwirlExtension) project.getExtensions().findByName("twirl");
     assertThat(ext).isNotNull();
     assertThat((ext).getScalaVersion().getOrNull()).isEqualTo("2.13");
+    assertThat(ext.getCompileShards().getOrNull())
+        .isEqualTo(Runtime.getRuntime().availableProcessors());
+    assertThat(ext.getIsolationMode().getOrNull()).isEqualTo(TwirlIsolationMode.PROCESS);
   }
 
   @Test
@@ -70,6 +73,17 @@ class TwirlPluginTest {
     assertThat(project.getTasks().findByName("compileTestTwirl")).isNotNull();
   }
 
+  @Test
+  @DisplayName("Twirl compile task should take sharding and isolation from the extension")
+  void compileTaskShouldUseExtensionSettings() {
+    TwirlExtension ext = project.getExtensions().getByType(TwirlExtension.class);
+    ext.getCompileShards().set(3);
+    ext.getIsolationMode().set(TwirlIsolationMode.CLASSLOADER);
+    TwirlCompile task = (TwirlCompile) project.getTasks().getByName("compileTwirl");
+    assertThat(task.getCompileShards().get()).isEqualTo(3);
+    assertThat(task.getIsolationMode().get()).isEqualTo(TwirlIsolationMode.CLASSLOADER);
+  }
+
   private void checkSourceDirectorySet(SourceSet sourceSet) {
     assertThat(sourceSet).isNotNull();
     TwirlSourceDirectorySet twirlSourceSet =
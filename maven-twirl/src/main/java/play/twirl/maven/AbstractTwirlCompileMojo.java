@@ -12,11 +12,17 @@ import static org.codehaus.plexus.util.FileUtils.getExtension;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
@@ -24,6 +30,7 @@ import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 import org.codehaus.plexus.util.DirectoryScanner;
 import play.japi.twirl.compiler.TwirlCompiler;
+import play.twirl.compiler.CompilationProfile;
 import scala.io.Codec;
 
 public abstract class AbstractTwirlCompileMojo extends AbstractMojo {
@@ -135,6 +142,49 @@ public abstract class AbstractTwirlCompileMojo extends AbstractMojo {
   @Parameter(defaultValue = "UTF-8")
   private String sourceEncoding;
 
+  /**
+   * Number of threads to compile templates with. Either a number, or a multiple of the number of
+   * available processors suffixed with {@code C}, like the {@code -T} option of Maven.
+   *
+   * <p>Default: {@code 1}
+   *
+   * <p>Example:
+   *
+   * <pre>{@code
+   * <threads>1C</threads>
+   * }</pre>
+   */
+  @Parameter(property = "twirl.threads", defaultValue = "1")
+  private String threads;
+
+  /**
+   * Whether to minify the static text of HTML and XML templates, collapsing whitespace and dropping
+   * comments, except in {@code pre}, {@code textarea}, {@code script} and {@code style} elements.
+   *
+   * <p>Default: {@code false}
+   *
+   * <p>Example:
+   *
+   * <pre>{@code
+   * <minify>true</minify>
+   * }</pre>
+   */
+  @Parameter(property = "twirl.minify", defaultValue = "false")
+  private boolean minify;
+
+  /**
+   * File to write a JSON report of the slowest templates to compile and of their biggest generated
+   * sources to. No report is written by default.
+   *
+   * <p>Example:
+   *
+   * <pre>{@code
+   * <profileReport>${project.build.directory}/twirl-profile.json</profileReport>
+   * }</pre>
+   */
+  @Parameter(property = "twirl.profileReport")
+  private File profileReport;
+
   private void initDefaults() {
     if (includes.isEmpty()) {
       includes.add("**/*.scala.*");
@@ -163,6 +213,10 @@ public abstract class AbstractTwirlCompileMojo extends AbstractMojo {
     getLog().info("Twirl Template Imports: " + prettyString(templateImports));
     getLog().info("Twirl Constructor Annotations: " + prettyString(constructorAnnotations));
     getLog().info("Twirl Source Encoding: " + sourceEncoding);
+    getLog().info("Twirl Minify: " + minify);
+    if (profileReport != null) {
+      getLog().info("Twirl Profile Report: " + profileReport);
+    }
 
     final var templates = findTwirlTemplates();
     if (templates.isEmpty()) {
@@ -170,27 +224,127 @@ public abstract class AbstractTwirlCompileMojo extends AbstractMojo {
       return;
     }
 
+    final var threadCount = parseThreads(threads);
+    getLog().info("Twirl Threads: " + threadCount);
+
+    // Checked for every file up front, so that the error doesn't depend on the order of compilation
+    final Map<String, Collection<String>> importsByExtension = new HashMap<>();
     for (File file : templates) {
       final var extension = getExtension(file.getName());
-      final var format = templateFormats.get(extension);
-      if (format == null) {
+      if (!templateFormats.containsKey(extension)) {
         throw new MojoFailureException(
             String.format(
                 "Unknown file format of '%s'. Possible extentions: [%s]",
                 file.getName(), prettyString(templateFormats.keySet())));
       }
-      if (getLog().isDebugEnabled()) {
-        getLog().debug("Compile file: " + file);
+      importsByExtension.computeIfAbsent(
+          extension, ext -> TwirlCompiler.formatImports(templateImports, ext));
+    }
+
+    final var annotations = new ArrayList<>(constructorAnnotations);
+    final var codec = Codec.string2codec(sourceEncoding);
+    final var profile = profileReport != null ? new CompilationProfile() : null;
+    if (threadCount == 1) {
+      for (File file : templates) {
+        compile(file, importsByExtension, annotations, codec, profile);
+      }
+    } else {
+      final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+      try {
+        final List<Future<?>> tasks = new ArrayList<>();
+        for (File file : templates) {
+          tasks.add(
+              executor.submit(
+                  () -> compile(file, importsByExtension, annotations, codec, profile)));
+        }
+        // Waits for every file, then reports the error of the first failed file by path
+        Throwable error = null;
+        for (Future<?> task : tasks) {
+          try {
+            task.get();
+          } catch (ExecutionException e) {
+            if (error == null) {
+              error = e.getCause();
+            }
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while compiling Twirl templates", e);
+          }
+        }
+        if (error instanceof RuntimeException) {
+          throw (RuntimeException) error;
+        } else if (error instanceof Error) {
+          throw (Error) error;
+        } else if (error != null) {
+          throw new MojoExecutionException("Twirl compilation failed", error);
+        }
+      } finally {
+        executor.shutdownNow();
+      }
+    }
+    if (profile != null) {
+      writeProfileReport(profile);
+    }
+  }
+
+  private void writeProfileReport(CompilationProfile profile) {
+    profile.writeReport(profileReport, CompilationProfile.DefaultTop());
+    getLog().info("Wrote the Twirl compilation profile to " + profileReport);
+    final var slowest = profile.slowest(5);
+    for (int i = 0; i < slowest.size(); i++) {
+      getLog().info("  " + slowest.apply(i));
+    }
+  }
+
+  private void compile(
+      File file,
+      Map<String, Collection<String>> importsByExtension,
+      List<String> annotations,
+      Codec codec,
+      CompilationProfile profile) {
+    final var extension = getExtension(file.getName());
+    if (getLog().isDebugEnabled()) {
+      getLog().debug("Compile file: " + file);
+    }
+    TwirlCompiler.compile(
+        file,
+        getSourceDirectory(),
+        getOutputDirectory(),
+        templateFormats.get(extension),
+        importsByExtension.get(extension),
+        annotations,
+        codec,
+        false,
+        minify,
+        profile);
+  }
+
+  /**
+   * Parses the number of threads, either a plain number or a multiple of the number of available
+   * processors, like {@code 2} or {@code 1.5C}.
+   */
+  static int parseThreads(String threads) throws MojoFailureException {
+    try {
+      final int count;
+      if (threads.endsWith("C") || threads.endsWith("c")) {
+        final var factor = Float.parseFloat(threads.substring(0, threads.length() - 1));
+        count =
+            factor > 0
+                ? Math.max(1, (int) (factor * Runtime.getRuntime().availableProcessors()))
+                : 0;
+      } else {
+        count = Integer.parseInt(threads);
+      }
+      if (count < 1) {
+        throw new NumberFormatException();
       }
-      TwirlCompiler.compile(
-          file,
-          getSourceDirectory(),
-          getOutputDirectory(),
-          format,
-          TwirlCompiler.formatImports(templateImports, extension),
-          new ArrayList<>(constructorAnnotations),
-          Codec.string2codec(sourceEncoding),
-          false);
+      return count;
+    } catch (NumberFormatException e) {
+      throw new MojoFailureException(
+          String.format(
+              "Invalid number of threads '%s'. Expected a positive number like 4, or a multiple of"
+                  + " the number of processors like 1C",
+              threads));
     }
   }
 
@@ -208,6 +362,7 @@ public abstract class AbstractTwirlCompileMojo extends AbstractMojo {
     scanner.scan();
 
     return stream(scanner.getIncludedFiles())
+        .sorted()
         .map(path -> new File(getSourceDirectory(), path))
         .collect(toList());
   }
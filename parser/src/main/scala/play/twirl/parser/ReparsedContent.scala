@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.twirl.parser
+
+import play.twirl.parser.TreeNodes._
+import scala.util.parsing.input.OffsetPosition
+import scala.util.parsing.input.Positional
+
+/**
+ * The top level content of a template parsed by [[TwirlParser.reparse]]. It is made of runs of parts of earlier parses,
+ * each with the distance its positions move by in `source`. The parts are only copied into `source`, with their
+ * positions moved, the first time the content is read, so that reparsing an edit doesn't cost more with the size of the
+ * content that follows it. Once read, the content no longer references the sources of the earlier parses.
+ */
+private[parser] final class ReparsedContent private (val source: String, initialRuns: Array[ReparsedContent.Run])
+    extends scala.collection.AbstractSeq[TemplateTree]
+    with scala.collection.immutable.IndexedSeq[TemplateTree] {
+  import ReparsedContent._
+
+  val length: Int = initialRuns.map(_.size).sum
+
+  private var pendingRuns       = initialRuns
+  @volatile private var content = null: Array[TemplateTree]
+
+  def apply(i: Int): TemplateTree = parts(i)
+
+  override def iterator: Iterator[TemplateTree] = parts.iterator
+
+  /**
+   * The runs the content is made of, a single one once the content is read.
+   */
+  private[parser] def runs: Array[Run] = synchronized(pendingRuns)
+
+  private def parts: Array[TemplateTree] = {
+    if (content eq null) synchronized {
+      if (content eq null) {
+        val moved = new Array[TemplateTree](length)
+        var i     = 0
+        pendingRuns.foreach { run =>
+          val move = new Move(source, run.delta)
+          (run.from until run.until).foreach { j =>
+            moved(i) = if ((run.source eq source) && run.delta == 0) run.parts(j) else move.node(run.parts(j))
+            i += 1
+          }
+        }
+        content = moved
+        pendingRuns = Array(Run(source, this, 0, length, 0))
+      }
+    }
+    content
+  }
+}
+
+private[parser] object ReparsedContent {
+
+  /**
+   * Beyond this number of runs, the content is moved into its source straight away, so that a template edited many
+   * times without being read doesn't keep the sources of all its earlier parses.
+   */
+  private val MaxRuns = 16
+
+  /**
+   * The parts from `from` to `until`, positioned in `source`, that move by `delta` in the source of the content.
+   */
+  final case class Run(
+      source: String,
+      parts: collection.IndexedSeq[TemplateTree],
+      from: Int,
+      until: Int,
+      delta: Int
+  ) {
+    def size: Int = until - from
+  }
+
+  def apply(source: String, runs: Array[Run]): ReparsedContent = {
+    val content = new ReparsedContent(source, runs.filter(_.size > 0))
+    if (content.runs.length > MaxRuns) content.parts
+    content
+  }
+
+  /**
+   * The runs of the content of a template, positioned in the given source.
+   */
+  def runsOf(content: collection.Seq[TemplateTree], source: String): Array[Run] = content match {
+    case reparsed: ReparsedContent => reparsed.runs
+    case _                         => Array(Run(source, content.toIndexedSeq, 0, content.size, 0))
+  }
+
+  /**
+   * The runs of the parts from `from` to `until` of the content made of the given runs, moved by another `delta`.
+   */
+  def slice(runs: Array[Run], from: Int, until: Int, delta: Int): Array[Run] = {
+    val sliced = Array.newBuilder[Run]
+    var start  = 0
+    runs.foreach { run =>
+      val first = math.max(from, start)
+      val last  = math.min(until, start + run.size)
+      if (first < last)
+        sliced += run.copy(from = run.from + first - start, until = run.from + last - start, delta = run.delta + delta)
+      start += run.size
+    }
+    sliced.result()
+  }
+
+  /**
+   * Copies parts of a template, moving their positions by `delta` into `source`.
+   */
+  final class Move(source: String, delta: Int) {
+    private def at[T <: Positional](original: Positional, copy: T): T = {
+      original.pos match {
+        case OffsetPosition(_, offset) => copy.setPos(OffsetPosition(source, offset + delta))
+        case pos                       => copy.setPos(pos)
+      }
+    }
+
+    private def unsupported(tree: Any): Nothing =
+      throw new IllegalArgumentException(s"Can't move a ${tree.getClass.getName} into an edited template")
+
+    def posString(p: PosString): PosString = at(p, PosString(p.str))
+
+    def simple(s: Simple): Simple = at(s, Simple(s.code))
+
+    def comment(c: Comment): Comment = at(c, Comment(c.msg))
+
+    def constructor(c: Constructor): Constructor = Constructor(c.comment.map(comment), posString(c.params))
+
+    private def variable(v: Var): Var = at(v, Var(posString(v.name), v.resultType.map(posString), simple(v.code)))
+
+    private def member(m: LocalMember): LocalMember = m match {
+      case d @ Def(name, params, resultType, code) =>
+        at(d, Def(posString(name), posString(params), resultType.map(posString), simple(code)))
+      case v @ Val(name, isLazy, resultType, code) =>
+        at(v, Val(posString(name), isLazy, resultType.map(posString), simple(code)))
+      case v: Var => variable(v)
+      case other  => unsupported(other)
+    }
+
+    private def subTemplate(t: SubTemplate): SubTemplate =
+      at(
+        t,
+        SubTemplate(
+          t.declaration,
+          posString(t.name),
+          posString(t.params),
+          t.imports.map(simple),
+          t.members.map(member),
+          t.sub.map(subTemplate),
+          t.content.map(node)
+        )
+      )
+
+    private def part(p: ScalaExpPart): ScalaExpPart = p match {
+      case s: Simple => simple(s)
+      case b @ Block(whitespace, args, block) =>
+        val contents = at(
+          block,
+          BlockTemplate(
+            block.imports.map(simple),
+            block.members.map(member),
+            block.sub.map(subTemplate),
+            block.content.map(node)
+          )
+        )
+        at(b, Block(whitespace, args.map(posString), contents))
+      case other => unsupported(other)
+    }
+
+    private def scalaExp(e: ScalaExp): ScalaExp = at(e, ScalaExp(e.parts.map(part)))
+
+    def node(t: TemplateTree): TemplateTree = t match {
+      case p @ Plain(text)     => at(p, Plain(text))
+      case d @ Display(exp)    => at(d, Display(scalaExp(exp)))
+      case c: Comment          => comment(c)
+      case e: ScalaExp         => scalaExp(e)
+      case r @ Reassignment(e) => at(r, Reassignment(e.fold(t => Left(subTemplate(t)), v => Right(variable(v)))))
+      case other               => unsupported(other)
+    }
+  }
+}
@@ -120,6 +120,9 @@ class TwirlParser(val shouldParseInclusiveDot: Boolean) {
      */
     def apply(length: Int): String = source_.substring(offset_, offset_ + length)
 
+    /** The source between two offsets, sliced without copying character by character. Does not check for EOF. */
+    def slice(start: Int, end: Int): String = source_.substring(start, end)
+
     /** Equivalent to `input(str.length) == str`. Does not check for EOF. */
     def matches(str: String): Boolean = {
       var i = 0
@@ -237,11 +240,11 @@ class TwirlParser(val shouldParseInclusiveDot: Boolean) {
    *   the consumed characters
    */
   def anyUntil(stop: String, inclusive: Boolean): String = {
-    val sb = new StringBuilder
-    while (!input.isPastEOF(stop.length) && !input.matches(stop)) sb.append(any())
+    val start = input.offset()
+    while (!input.isPastEOF(stop.length) && !input.matches(stop)) input.advance()
     if (inclusive && !input.isPastEOF(stop.length))
-      sb.append(any(stop.length))
-    sb.toString()
+      input.advance(stop.length)
+    input.slice(start, input.offset())
   }
 
   /**
@@ -253,11 +256,11 @@ class TwirlParser(val shouldParseInclusiveDot: Boolean) {
    *   the consumed characters
    */
   def anyUntil(f: Char => Boolean, inclusive: Boolean): String = {
-    val sb = new StringBuilder
-    while (!input.isEOF && !f(input())) sb.append(any())
+    val start = input.offset()
+    while (!input.isEOF && !f(input())) input.advance()
     if (inclusive && !input.isEOF)
-      sb.append(any())
-    sb.toString
+      input.advance()
+    input.slice(start, input.offset())
   }
 
   /** Set the source position of a Positional */
@@ -273,30 +276,22 @@ class TwirlParser(val shouldParseInclusiveDot: Boolean) {
    * Terminates at EOF.
    */
   def recursiveTag(prefix: String, suffix: String, allowStringLiterals: Boolean = false): String = {
+    val start = input.offset()
     if (check(prefix)) {
       var stack = 1
-      val sb    = new StringBuffer
-      sb.append(prefix)
       while (stack > 0) {
         if (check(prefix)) {
           stack += 1
-          sb.append(prefix)
         } else if (check(suffix)) {
           stack -= 1
-          sb.append(suffix)
         } else if (input.isEOF) {
           error("Expected '" + suffix + "' but found 'EOF'")
           stack = 0
-        } else if (allowStringLiterals) {
-          stringLiteral("\"", "\\") match {
-            case null => sb.append(any())
-            case s    => sb.append(s)
-          }
-        } else {
-          sb.append(any())
+        } else if (!allowStringLiterals || !skipStringLiteral("\"", "\\")) {
+          input.advance()
         }
       }
-      sb.toString
+      input.slice(start, input.offset())
     } else null
   }
 
@@ -304,30 +299,34 @@ class TwirlParser(val shouldParseInclusiveDot: Boolean) {
    * Match a string literal, allowing for escaped quotes. Terminates at EOF.
    */
   def stringLiteral(quote: String, escape: String): String = {
+    val start = input.offset()
+    if (skipStringLiteral(quote, escape)) input.slice(start, input.offset())
+    else null
+  }
+
+  /**
+   * Skip over a string literal, allowing for escaped quotes. Terminates at EOF.
+   *
+   * @return
+   *   true if a string literal was found, false otherwise.
+   */
+  private def skipStringLiteral(quote: String, escape: String): Boolean = {
     if (check(quote)) {
       var within = true
-      val sb     = new StringBuffer
-      sb.append(quote)
       while (within) {
         if (check(quote)) { // end of string literal
-          sb.append(quote)
           within = false
         } else if (check(escape)) {
-          sb.append(escape)
-          if (check(quote)) { // escaped quote
-            sb.append(quote)
-          } else if (check(escape)) { // escaped escape
-            sb.append(escape)
-          }
+          if (!check(quote)) check(escape) // escaped quote or escaped escape
         } else if (input.isEOF) {
           error("Expected '" + quote + "' but found 'EOF'")
           within = false
         } else {
-          sb.append(any())
+          input.advance()
         }
       }
-      sb.toString
-    } else null
+      true
+    } else false
   }
 
   /** Match zero or more `parser` */
@@ -546,7 +545,6 @@ class TwirlParser(val shouldParseInclusiveDot: Boolean) {
   }
 
   def blockArgs(): PosString = {
-    def noCurlyBraces(result: String): Boolean        = !result.contains("{") && !result.contains("}")
     def noOpeningParenthesis(result: String): Boolean = {
       val noContainsOpenParenthesis = !result.contains("(")
 
@@ -556,12 +554,18 @@ class TwirlParser(val shouldParseInclusiveDot: Boolean) {
       noContainsOpenParenthesis || (startsWithParenthesis && endsWithParenthesis)
     }
 
-    val p      = input.offset()
-    val result = anyUntil("=>", inclusive = true)
-    if (result.endsWith("=>") && !result.contains("\n") && noCurlyBraces(result) && noOpeningParenthesis(result))
+    val p = input.offset()
+    // Block arguments can't span lines or contain braces, so there is no need to look for `=>` any further
+    while (!input.isPastEOF(2) && !input.matches("=>") && input() != '\n' && input() != '{' && input() != '}')
+      input.advance()
+    if (!input.isPastEOF(2) && input.matches("=>")) {
+      input.advance(2)
+    }
+    val result = input.slice(p, input.offset())
+    if (result.endsWith("=>") && noOpeningParenthesis(result))
       position(PosString(result), p)
     else {
-      input.regress(result.length())
+      input.regressTo(p)
       null
     }
   }
@@ -684,25 +688,30 @@ class TwirlParser(val shouldParseInclusiveDot: Boolean) {
   }
 
   def plain(): Plain = {
-    def single(): String = {
-      if (check("@@")) "@"
-      else if (check("@}")) "}"
-      else if (!input.isEOF && input() != '@' && input() != '}' && input() != '{') any()
-      else null
-    }
-    val p             = input.offset()
-    var result: Plain = null
-    var part          = single()
-    if (part != null) {
-      val sb = new StringBuffer
-      while (part != null) {
-        sb.append(part)
-        part = single()
+    val p = input.offset()
+    // Runs of plain characters are sliced from the source, only escapes need a builder
+    var sb: java.lang.StringBuilder = null
+    var runStart                    = p
+    var done                        = false
+    while (!done) {
+      val escaped = if (check("@@")) '@' else if (check("@}")) '}' else 0.toChar
+      if (escaped != 0) {
+        if (sb == null) sb = new java.lang.StringBuilder
+        sb.append(input.source(), runStart, input.offset() - 2).append(escaped)
+        runStart = input.offset()
+      } else if (!input.isEOF && input() != '@' && input() != '}' && input() != '{') {
+        input.advance()
+      } else {
+        done = true
       }
-      result = position(Plain(sb.toString), p)
     }
-
-    result
+    if (input.offset() == p) {
+      null
+    } else if (sb == null) {
+      position(Plain(input.slice(p, input.offset())), p)
+    } else {
+      position(Plain(sb.append(input.source(), runStart, input.offset()).toString), p)
+    }
   }
 
   def expression(): Display = {
@@ -731,12 +740,12 @@ class TwirlParser(val shouldParseInclusiveDot: Boolean) {
   }
 
   def methodCall(): String = {
-    val name = identifier()
+    val start = input.offset()
+    val name  = identifier()
     if (name != null) {
-      val sb = new StringBuffer(name)
-      sb.append(Option(squareBrackets()).getOrElse(""))
-      sb.append(Option(parentheses()).getOrElse(""))
-      sb.toString
+      squareBrackets()
+      parentheses()
+      input.slice(start, input.offset())
     } else null
   }
 
@@ -798,25 +807,18 @@ class TwirlParser(val shouldParseInclusiveDot: Boolean) {
     def inclusiveDot(): Simple = {
       val p = input.offset()
       if (check(".")) {
-        val sb = new StringBuffer(".")
-
         // Simply alternate between matching a methodCall and a dot until one fails.
         var done            = false
         var matchMethodCall = true // represent: "should I try to match a method call or a dot?
         while (!done) {
           if (matchMethodCall) {
-            val method = methodCall()
-            if (method != null)
-              sb.append(method)
-            else done = true
+            if (methodCall() == null) done = true
           } else {
-            if (check("."))
-              sb.append('.')
-            else done = true
+            if (!check(".")) done = true
           }
           matchMethodCall = !matchMethodCall
         }
-        position(Simple(sb.toString), p)
+        position(Simple(input.slice(p, input.offset())), p)
       } else null
     }
 
@@ -829,29 +831,16 @@ class TwirlParser(val shouldParseInclusiveDot: Boolean) {
       if (check(".")) {
         val firstMethodCall = methodCall()
         if (firstMethodCall != null) {
-          val sb   = new StringBuffer("." + firstMethodCall)
           var done = false
           while (!done) {
-            val reset            = input.offset()
-            var nextLink: String = null
-            if (check(".")) {
-              methodCall() match {
-                case m: String => nextLink = m
-                case null      =>
-              }
-            }
-
-            nextLink match {
-              case null =>
-                done = true
-                input.regressTo(reset)
-              case _ =>
-                sb.append(".")
-                sb.append(nextLink)
+            val reset = input.offset()
+            if (!check(".") || methodCall() == null) {
+              done = true
+              input.regressTo(reset)
             }
           }
 
-          result = position(Simple(sb.toString), p)
+          result = position(Simple(input.slice(p, input.offset())), p)
         } else input.regressTo(p)
       }
 
@@ -1083,7 +1072,7 @@ class TwirlParser(val shouldParseInclusiveDot: Boolean) {
       if (name != null) {
         val paramspos = input.offset()
         val types     = Option(squareBrackets()).getOrElse("")
-        if (types.replaceAll("\\s", "") == "[]") {
+        if (types.filterNot(_.isWhitespace) == "[]") {
           input.regressTo(resetPosition) // don't consume @
           error(s"identifier expected but ']' found", paramspos)
           return null
@@ -1122,6 +1111,21 @@ class TwirlParser(val shouldParseInclusiveDot: Boolean) {
       collection.Seq[LocalMember],
       collection.Seq[SubTemplate],
       collection.Seq[TemplateTree]
+  ) = templateContent(previousDefinedLocalMembersInParents, previousDefinedTemplatesInParents, _ => false)
+
+  /**
+   * Parses template content, stopping early at the first offset between two parts of the content for which `stopAt`
+   * returns true.
+   */
+  private def templateContent(
+      previousDefinedLocalMembersInParents: ArrayBuffer[LocalMember],
+      previousDefinedTemplatesInParents: ArrayBuffer[SubTemplate],
+      stopAt: Int => Boolean
+  ): (
+      collection.Seq[Simple],
+      collection.Seq[LocalMember],
+      collection.Seq[SubTemplate],
+      collection.Seq[TemplateTree]
   ) = {
     val imports      = new ArrayBuffer[Simple]
     val localMembers = new ArrayBuffer[LocalMember]
@@ -1211,6 +1215,7 @@ class TwirlParser(val shouldParseInclusiveDot: Boolean) {
           }
         }
       }
+      done = done || stopAt(input.offset())
     }
 
     (imports, localMembers, templates, mixeds)
@@ -1321,6 +1326,131 @@ class TwirlParser(val shouldParseInclusiveDot: Boolean) {
       Error(template, input, errorStack.toList)
   }
 
+  /**
+   * Parses `source`, the result of an edit of the source of `previous` that replaced the characters from `start` to
+   * `oldEnd` with those from `start` to `newEnd`. Only the top level content around the edit is parsed again: the
+   * content before and after it is reused, from the first point where the parse is back in step with the previous one.
+   * The reused parts are only copied into `source`, with their positions moved past the edit, when the content of the
+   * result is first read, so the cost of a reparse doesn't grow with the size of the content after the edit.
+   *
+   * The result is the same as that of `parse(source)`, as long as `previous` is the template of a parse that succeeded
+   * and consumed all of its source. Edits that could change how the rest of the template is parsed, such as edits of
+   * the template arguments, or of templates with top level imports, definitions or sub templates, are parsed from
+   * scratch.
+   */
+  def reparse(previous: Template, source: String, start: Int, oldEnd: Int, newEnd: Int): ParseResult = {
+    val oldSource = previous.content match {
+      case reparsed: ReparsedContent => reparsed.source
+      case content =>
+        content.headOption.map(_.asInstanceOf[Positional].pos) match {
+          case Some(OffsetPosition(oldSource: String, _)) => oldSource
+          case _                                          => null
+        }
+    }
+    val runs =
+      if (oldSource == null) Array.empty[ReparsedContent.Run] else ReparsedContent.runsOf(previous.content, oldSource)
+    // The offsets of the top level parts in the previous source, read without copying the parts
+    val offsets = new ArrayBuffer[Int](previous.content.size)
+    val parts   = new ArrayBuffer[TemplateTree](previous.content.size)
+    runs.foreach { run =>
+      (run.from until run.until).foreach { i =>
+        val offset = offsetOf(run.parts(i))
+        offsets += (if (offset < 0) offset else offset + run.delta)
+        parts += run.parts(i)
+      }
+    }
+    val delta = newEnd - oldEnd
+    // The parse of the header looks for `@import ` or template arguments at the start of the content
+    val headerLookahead = "@import ".length
+    val reusable =
+      oldSource != null && previous.imports.isEmpty && previous.members.isEmpty && previous.sub.isEmpty &&
+        offsets.nonEmpty && offsets.head >= 0 && start >= offsets.head + headerLookahead && start <= oldEnd &&
+        start <= newEnd && oldSource.length + delta == source.length &&
+        source.regionMatches(0, oldSource, 0, start) &&
+        source.regionMatches(newEnd, oldSource, oldEnd, oldSource.length - oldEnd)
+    if (!reusable) {
+      parse(source)
+    } else {
+      // Only the offsets of plain texts and comments at the top level of the content are places where the parse can start
+      // or stop, as other parts don't start at their position. The braces of '{' mixed* '}' are plain text in the
+      // content, but what they enclose is not at the top level.
+      val boundaries = new ArrayBuffer[Int]
+      var depth      = 0
+      parts.indices.foreach { i =>
+        if (depth == 0 && offsets(i) >= 0) boundaries += i
+        parts(i) match {
+          case Plain("{") if oldSource.charAt(offsets(i)) == '{' => depth += 1
+          case Plain("}") if oldSource.charAt(offsets(i)) == '}' => depth -= 1
+          case _                                                 =>
+        }
+      }
+      // Start two parts before the edit, as the parse of a part looks ahead for an `else` or `match` that may follow it
+      // after some whitespace, which is a part of its own
+      val editedPart = boundaries.lastIndexWhere(i => offsets(i) <= start)
+      val first      = boundaries(math.max(0, editedPart - 2))
+      val resumable  = boundaries.map(offsets).toArray
+
+      input.reset(source)
+      errorStack.clear()
+      input.regressTo(offsets(first))
+      var resumeAt = -1
+      val (imports, localMembers, templates, mixeds) =
+        templateContent(
+          ArrayBuffer.empty,
+          ArrayBuffer.empty,
+          offset =>
+            offset >= newEnd && {
+              val i = java.util.Arrays.binarySearch(resumable, offset - delta)
+              if (i >= 0) resumeAt = boundaries(i)
+              i >= 0
+            }
+        )
+      if (imports.nonEmpty || localMembers.nonEmpty || templates.nonEmpty) {
+        parse(source)
+      } else {
+        if (resumeAt >= 0) input.regressTo(source.length)
+        val reused =
+          if (resumeAt < 0) Array.empty[ReparsedContent.Run]
+          else ReparsedContent.slice(runs, resumeAt, parts.size, delta)
+        val content = ReparsedContent(
+          source,
+          ReparsedContent.slice(runs, 0, first, 0) ++
+            Array(ReparsedContent.Run(source, mixeds.toIndexedSeq, 0, mixeds.size, 0)) ++ reused
+        )
+        // The header is before the edit, it is only moved into the new source
+        val move = new ReparsedContent.Move(source, 0)
+        val template = Template(
+          previous.constructor.map(move.constructor),
+          previous.comment.map(move.comment),
+          move.posString(previous.params),
+          previous.topImports.map(move.simple),
+          Nil,
+          Nil,
+          Nil,
+          content
+        )
+        previous.pos match {
+          case OffsetPosition(_, offset) => template.setPos(OffsetPosition(source, offset))
+          case pos                       => template.setPos(pos)
+        }
+        if (errorStack.isEmpty)
+          Success(template, input)
+        else
+          Error(template, input, errorStack.toList)
+      }
+    }
+  }
+
+  /** The offset where a plain text or a comment starts, or -1 for other parts, whose position may be inside of them. */
+  private def offsetOf(tree: TemplateTree): Int = tree match {
+    case located @ (_: Plain | _: Comment) =>
+      located.asInstanceOf[Positional].pos match {
+        case OffsetPosition(_, offset) => offset
+        case _                         => -1
+      }
+    case _ => -1
+  }
+
   def mkRegressionStatisticsString(): Unit = {
     val a = input.regressionStatistics.toArray.sortBy { case (_, (c, _)) => c }
     a.mkString("\n")
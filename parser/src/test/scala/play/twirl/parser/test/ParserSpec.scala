@@ -2053,12 +2053,28 @@ class ParserSpec extends AnyWordSpec with Matchers with Inside {
       "with right parenthesis and '@'" in {
         parseStringSuccess("""@foo(")@")""")
       }
+
+      "with escaped quotes" in {
+        val expressions = parseTemplateString("""@foo("\")\\", ")").bar""").content(0).asInstanceOf[Display].exp.parts
+        expressions.head mustBe Simple("""foo("\")\\", ")")""")
+        expressions(1) mustBe Simple(".bar")
+      }
     }
 
     "handle escaped closing curly braces" in {
       parseStringSuccess("""@for(i <- is) { @} }""")
     }
 
+    "unescape '@@' and '@}' in plain text" in {
+      parseTemplateString("a@@b @}c@@").content mustBe Seq(Plain("a@b }c@"))
+    }
+
+    "keep method calls with type parameters and arguments" in {
+      val expressions = parseTemplateString("@a.b[Int](1).c(2)").content(0).asInstanceOf[Display].exp.parts
+      expressions.head mustBe Simple("a")
+      expressions(1) mustBe Simple(".b[Int](1).c(2)")
+    }
+
     "fail for" when {
       "unclosedBracket.scala.html" in {
         parseFailure("unclosedBracket.scala.html", "Expected '}' but found 'EOF'", 16, 6)
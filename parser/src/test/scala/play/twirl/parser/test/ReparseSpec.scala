@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.twirl.parser
+package test
+
+import play.twirl.parser.TreeNodes._
+import org.scalatest.matchers.must.Matchers
+import org.scalatest.wordspec.AnyWordSpec
+import scala.util.Random
+import scala.util.parsing.input.OffsetPosition
+import scala.util.parsing.input.Positional
+
+class ReparseSpec extends AnyWordSpec with Matchers {
+
+  val parser   = new TwirlParser(shouldParseInclusiveDot = false)
+  val reparser = new TwirlParser(shouldParseInclusiveDot = false)
+
+  def get(templateName: String): String =
+    TwirlIO.readUrlAsString(this.getClass.getClassLoader.getResource(templateName))
+
+  def parseTemplate(source: String): Template = parser.parse(source) match {
+    case parser.Success(template, input) if input.atEnd() => template
+    case _                                                => null
+  }
+
+  /**
+   * The nodes of a tree, with the offsets of their positions.
+   */
+  def describe(tree: Any): Seq[Any] = tree match {
+    case i: Iterable[?] => i.toSeq.flatMap(describe)
+    case p: Product =>
+      val offset = p match {
+        case positional: Positional =>
+          positional.pos match {
+            case OffsetPosition(_, offset) => offset
+            case _                         => -1
+          }
+        case _ => -1
+      }
+      Seq(p.productPrefix, offset) ++ p.productIterator.flatMap(describe)
+    case other => Seq(other)
+  }
+
+  def describe(result: TwirlParser#ParseResult): Seq[Any] = result match {
+    case s: TwirlParser#Success => Seq("Success", s.input.offset()) ++ describe(s.template)
+    case e: TwirlParser#Error =>
+      Seq("Error", e.input.offset()) ++ describe(e.template) ++ e.errors.map(error => (error.str, error.pos.toString))
+  }
+
+  def reparse(source: String, start: Int, end: Int, replacement: String): Unit = {
+    val previous = parseTemplate(source)
+    if (previous != null) {
+      val edited = source.substring(0, start) + replacement + source.substring(end)
+      withClue(s"Replacing [$start, $end) with '$replacement' in:\n$source\n") {
+        describe(reparser.reparse(previous, edited, start, end, start + replacement.length)) mustBe describe(
+          parser.parse(edited)
+        )
+      }
+    }
+  }
+
+  val templates = Seq(
+    get("simple.scala.html"),
+    get("complicated.scala.html"),
+    get("elseIf.scala.html"),
+    get("static.scala.html"),
+    get("case.scala.js"),
+    """@(items: Seq[String])
+      |<ul>
+      |@for(item <- items) {
+      |  <li>@item</li>
+      |} @* a comment *@
+      |@if(items.isEmpty) { <p>None</p> } else { <p>@items.size</p> }
+      |{ @items.head }
+      |@items.size match {
+      |  case 0 => { zero }
+      |  case n => { @n }
+      |}
+      |@{ items.mkString(", ") } @@ @}
+      |</ul>
+      |""".stripMargin
+  )
+
+  val snippets = Seq(
+    "@",
+    "{",
+    "}",
+    "(",
+    ")",
+    "x",
+    " ",
+    "\n",
+    "@x",
+    "@@",
+    "@}",
+    "@*",
+    "*@",
+    " else {y}",
+    "else if(b) {z}",
+    " match {\n case 1 => { one }\n}",
+    "@if(a) {b}",
+    "@(x)",
+    ".map(_.y)",
+    "@x = {y}",
+    "@import x\n",
+    "\"",
+    "case "
+  )
+
+  "TwirlParser.reparse" should {
+    "parse edits like a parse from scratch" in {
+      val random = new Random(42)
+      for (source <- templates; _ <- 1 to 400) {
+        val start = random.nextInt(source.length + 1)
+        val end   = math.min(source.length, start + random.nextInt(4))
+        reparse(source, start, end, snippets(random.nextInt(snippets.size)))
+      }
+    }
+
+    "parse insertions next to every part like a parse from scratch" in {
+      val source = templates.last
+      for (start <- 0 to source.length; snippet <- Seq(" else {y}", "@", "}", " match {\n case 1 => { one }\n}")) {
+        reparse(source, start, start, snippet)
+      }
+    }
+
+    "reuse the content before and after the edit" in {
+      val source   = "@(a: Int)\n" + (1 to 100).map(i => s"<p>@a $i</p>\n").mkString
+      val previous = parseTemplate(source)
+      val start    = source.indexOf("<p>@a 50</p>") + 3
+      val edited   = source.substring(0, start) + "@@" + source.substring(start)
+      val result   = reparser.reparse(previous, edited, start, start, start + 2)
+      describe(result) mustBe describe(parser.parse(edited))
+      val content = result.asInstanceOf[reparser.Success].template.content
+      content.head mustBe previous.content.head
+      content.last mustBe previous.content.last
+      (content.last eq previous.content.last) mustBe false
+    }
+
+    "position every part in the edited source" in {
+      val source   = "@(a: Int)\n" + (1 to 20).map(i => s"<p>@a $i @if(a > $i) { <b>@a</b> }</p>\n").mkString
+      val previous = parseTemplate(source)
+      val start    = source.indexOf("<p>@a 10") + 3
+      val edited   = source.substring(0, start) + "x" + source.substring(start)
+      val template = reparser.reparse(previous, edited, start, start, start + 1).asInstanceOf[reparser.Success].template
+      def sources(tree: Any): Seq[CharSequence] = tree match {
+        case i: Iterable[?] => i.toSeq.flatMap(sources)
+        case p: Product =>
+          val source = p match {
+            case positional: Positional =>
+              positional.pos match {
+                case OffsetPosition(source, _) => Seq(source)
+                case _                         => Nil
+              }
+            case _ => Nil
+          }
+          source ++ p.productIterator.flatMap(sources)
+        case _ => Nil
+      }
+      sources(template) must not be empty
+      sources(template).foreach(s => (s eq edited) mustBe true)
+    }
+
+    "parse a series of edits, each reparsing the previous result, like a parse from scratch" in {
+      val random   = new Random(7)
+      var source   = templates.last
+      var previous = parseTemplate(source)
+      (1 to 200).foreach { _ =>
+        val start   = random.nextInt(source.length + 1)
+        val end     = math.min(source.length, start + random.nextInt(4))
+        val snippet = snippets(random.nextInt(snippets.size))
+        val edited  = source.substring(0, start) + snippet + source.substring(end)
+        val result  = reparser.reparse(previous, edited, start, end, start + snippet.length)
+        withClue(s"Replacing [$start, $end) with '$snippet' in:\n$source\n") {
+          describe(result) mustBe describe(parser.parse(edited))
+        }
+        result match {
+          case success: reparser.Success if success.input.atEnd() =>
+            source = edited
+            previous = success.template
+          case _ =>
+        }
+      }
+    }
+
+    "fail clearly to reuse parts it doesn't know" in {
+      case class Unknown(text: String) extends TemplateTree
+      val source   = "@(a: Int)\n" + (1 to 10).map(i => s"<p>@a $i</p>\n").mkString
+      val parsed   = parseTemplate(source)
+      val previous = parsed.copy(content = parsed.content :+ Unknown("?"))
+      val start    = source.indexOf("<p>@a 5</p>") + 3
+      val edited   = source.substring(0, start) + "x" + source.substring(start)
+      val template = reparser.reparse(previous, edited, start, start, start + 1).asInstanceOf[reparser.Success].template
+      (the[IllegalArgumentException] thrownBy template.content.last must have)
+        .message(s"Can't move a ${classOf[Unknown].getName} into an edited template")
+    }
+
+    "parse from scratch when the edit is inconsistent with the previous source" in {
+      val source   = "@(a: Int)\n<p>@a</p>\n<p>@a</p>\n"
+      val previous = parseTemplate(source)
+      val edited   = source.replace("<p>", "<div>")
+      describe(reparser.reparse(previous, edited, 20, 21, 22)) mustBe describe(parser.parse(edited))
+    }
+  }
+}
@@ -23,6 +23,18 @@ object Import {
     )
     val sourceEncoding =
       TaskKey[String]("twirl-source-encoding", "Source encoding for template files and generated scala files")
+    val compileParallelism = SettingKey[Int](
+      "twirl-compile-parallelism",
+      "Maximum number of templates compiled in parallel, 1 to compile them one after the other"
+    )
+    val minifyTemplates = SettingKey[Boolean](
+      "twirl-minify-templates",
+      "Collapse whitespace and drop comments in the static text of HTML and XML templates"
+    )
+    val profileReport = SettingKey[Option[File]](
+      "twirl-profile-report",
+      "File to write a JSON report of the slowest templates to compile and their biggest generated sources to"
+    )
     @transient
     val compileTemplates =
       TaskKey[Seq[File]]("twirl-compile-templates", "Compile twirl templates into scala source files")
@@ -75,7 +87,10 @@ object SbtTwirl extends AutoPlugin {
       templateFormats        := defaultFormats,
       templateImports        := TwirlCompiler.defaultImports(scalaVersion.value),
       constructorAnnotations := Nil,
-      sourceEncoding         := scalacEncoding(scalacOptions.value)
+      sourceEncoding         := scalacEncoding(scalacOptions.value),
+      compileParallelism     := 1,
+      minifyTemplates        := false,
+      profileReport          := None
     )
 
   def positionSettings: Seq[Setting[?]] =
@@ -127,7 +142,12 @@ object SbtTwirl extends AutoPlugin {
         (compileTemplates / excludeFilter).value,
         Codec(sourceEncoding.value),
         streams.value.log,
-        scalaVersion.value
+        TemplateCompiler.Settings(
+          scalaVersion.value,
+          compileParallelism.value,
+          minifyTemplates.value,
+          profileReport.value
+        )
       )
     }
 
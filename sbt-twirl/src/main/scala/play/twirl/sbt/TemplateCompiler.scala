@@ -4,6 +4,12 @@
 
 package play.twirl.sbt
 
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory
+import java.util.concurrent.ForkJoinWorkerThread
+import java.util.concurrent.TimeUnit
 import sbt._
 import play.twirl.compiler._
 import scala.io.Codec
@@ -45,26 +51,137 @@ object TemplateCompiler {
       codec: Codec,
       log: Logger,
       scalaVersion: String
+  ): Seq[File] = compile(
+    sourceDirectories,
+    targetDirectory,
+    templateFormats,
+    templateImports,
+    constructorAnnotations,
+    includeFilter,
+    excludeFilter,
+    codec,
+    log,
+    Settings(scalaVersion, incremental = false)
+  )
+
+  /**
+   * How `compile` compiles the templates.
+   *
+   * @param scalaVersion
+   *   The Scala version to generate code for
+   * @param parallelism
+   *   The maximum number of threads to compile templates on
+   * @param minify
+   *   Whether to minify the static text of HTML and XML templates
+   * @param profileReport
+   *   Where to write a JSON report of how long the slowest templates took to compile, and of the biggest generated
+   *   sources. Compilations are only profiled when it is set.
+   * @param incremental
+   *   Whether to find the templates that are up to date with the index kept in the target directory, rather than by
+   *   reading their generated sources
+   */
+  final case class Settings(
+      scalaVersion: String,
+      parallelism: Int = 1,
+      minify: Boolean = false,
+      profileReport: Option[File] = None,
+      incremental: Boolean = true
+  )
+
+  /**
+   * Compiles the templates with the given settings. Whatever order the templates end up being compiled in, if several
+   * fail, the error of the first one by path is reported.
+   */
+  def compile(
+      sourceDirectories: Seq[File],
+      targetDirectory: File,
+      templateFormats: Map[String, String],
+      templateImports: Seq[String],
+      constructorAnnotations: Seq[String],
+      includeFilter: FileFilter,
+      excludeFilter: FileFilter,
+      codec: Codec,
+      log: Logger,
+      settings: Settings
   ): Seq[File] = {
+    val index   = if (settings.incremental) Some(CompilationIndex.load(targetDirectory)) else None
+    val profile = settings.profileReport.map(_ => new CompilationProfile)
     try {
-      syncGenerated(targetDirectory, codec)
-      val templates = collectTemplates(sourceDirectories, templateFormats, includeFilter, excludeFilter)
-      for ((template, sourceDirectory, extension, format) <- templates) {
-        val imports = TwirlCompiler.formatImports(templateImports, extension)
-        TwirlCompiler.compile(
-          template,
-          sourceDirectory,
-          targetDirectory,
-          format,
-          Some(scalaVersion),
-          imports,
-          constructorAnnotations,
-          codec,
-          inclusiveDot = false
-        )
+      index match {
+        case Some(index) => syncGenerated(targetDirectory, codec, index)
+        case None        => syncGenerated(targetDirectory, codec)
+      }
+      val templates =
+        collectTemplates(sourceDirectories, templateFormats, includeFilter, excludeFilter).sortBy(_._1.getPath)
+      val options = CompileOptions(
+        scalaVersion = Some(settings.scalaVersion),
+        constructorAnnotations = constructorAnnotations,
+        codec = codec,
+        index = index,
+        minify = settings.minify,
+        profile = profile
+      )
+      val start = System.nanoTime()
+      val compiled = inParallel(templates, settings.parallelism) {
+        case (template, sourceDirectory, extension, format) =>
+          val imports = TwirlCompiler.formatImports(templateImports, extension)
+          TwirlCompiler.compile(
+            template,
+            sourceDirectory,
+            targetDirectory,
+            format,
+            options.copy(additionalImports = imports)
+          )
+      }
+      val millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+      log.debug(
+        s"Compiled ${compiled.count(_.isDefined)} of ${templates.size} Twirl templates in $millis ms " +
+          s"(parallelism ${settings.parallelism})"
+      )
+      for (report <- settings.profileReport; profile <- profile) {
+        profile.writeReport(report, CompilationProfile.DefaultTop)
+        log.info(s"Wrote the Twirl compilation profile to $report")
+        profile.slowest(5).foreach(timing => log.info(s"  $timing"))
       }
       generatedFiles(targetDirectory).map(_.getAbsoluteFile)
     } catch handleError(log, codec)
+    finally index.foreach(_.save())
+  }
+
+  /**
+   * Applies f to every element on a pool of at most `parallelism` threads, and returns the results in order. All
+   * invocations are completed before the failure of the first failed element, if any, is rethrown.
+   *
+   * The threads of the pool use the context class loader of the calling sbt task, as the template compiler would if it
+   * ran on the task's thread.
+   */
+  private def inParallel[A, B](elements: Seq[A], parallelism: Int)(f: A => B): Seq[B] = {
+    if (parallelism <= 1 || elements.size <= 1) {
+      elements.map(f)
+    } else {
+      val classLoader = Thread.currentThread.getContextClassLoader
+      val threads = new ForkJoinWorkerThreadFactory {
+        def newThread(pool: ForkJoinPool): ForkJoinWorkerThread = {
+          val thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool)
+          thread.setContextClassLoader(classLoader)
+          thread
+        }
+      }
+      val pool = new ForkJoinPool(math.min(parallelism, elements.size), threads, null, false)
+      try {
+        val tasks = elements.map { element => pool.submit(new Callable[B] { def call(): B = f(element) }) }
+        val outcomes = tasks.map { task =>
+          try Right(task.get())
+          catch { case e: ExecutionException => Left(e.getCause) }
+        }
+        outcomes.map {
+          case Right(result) => result
+          case Left(error)   => throw error
+        }
+      } finally {
+        pool.shutdown()
+      }
+    }
   }
 
   private def handleError(log: Logger, codec: Codec): PartialFunction[Throwable, Nothing] = {
@@ -84,6 +201,14 @@ object TemplateCompiler {
     generatedFiles(targetDirectory).map(GeneratedSource(_, codec)).foreach(_.sync())
   }
 
+  /**
+   * Deletes the generated files whose template was deleted. Only the generated files missing from the index are read to
+   * find their template.
+   */
+  def syncGenerated(targetDirectory: File, codec: Codec, index: CompilationIndex): Unit = {
+    index.sync(generatedFiles(targetDirectory)).map(GeneratedSource(_, codec)).foreach(_.sync())
+  }
+
   def collectTemplates(
       sourceDirectories: Seq[File],
       templateFormats: Map[String, String],
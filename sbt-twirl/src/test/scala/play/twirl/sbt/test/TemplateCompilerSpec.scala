@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.twirl.sbt.test
+
+import java.io.File
+import play.twirl.compiler.CompilationIndex
+import play.twirl.sbt.SbtTwirl
+import play.twirl.sbt.TemplateCompiler
+import play.twirl.sbt.TemplateProblem.ProblemException
+import sbt.io.GlobFilter
+import sbt.io.HiddenFileFilter
+import sbt.io.IO
+import sbt.util.Logger
+import scala.io.Codec
+import org.scalatest.matchers.must.Matchers
+import org.scalatest.wordspec.AnyWordSpec
+
+class TemplateCompilerSpec extends AnyWordSpec with Matchers {
+
+  def compile(sourceDirectory: File, targetDirectory: File, parallelism: Int): Seq[File] =
+    TemplateCompiler.compile(
+      Seq(sourceDirectory),
+      targetDirectory,
+      SbtTwirl.defaultFormats,
+      Nil,
+      Nil,
+      GlobFilter("*.scala.*"),
+      HiddenFileFilter,
+      Codec.UTF8,
+      Logger.Null,
+      TemplateCompiler.Settings("2.13.x", parallelism)
+    )
+
+  def write(sourceDirectory: File, name: String, content: String): Unit =
+    IO.write(new File(sourceDirectory, s"views/$name"), content)
+
+  "TemplateCompiler" should {
+    "compile templates in parallel" in IO.withTemporaryDirectory { dir =>
+      val sources = new File(dir, "src")
+      (1 to 20).foreach { i => write(sources, s"page$i.scala.html", s"@(n: Int)\n<p>Page $i: @n</p>\n") }
+
+      val generated = compile(sources, new File(dir, "target"), parallelism = 4)
+      generated.map(_.getName).sorted mustBe (1 to 20).map(i => s"page$i.template.scala").sorted
+    }
+
+    "only keep an index with the signatures that compile incrementally" in IO.withTemporaryDirectory { dir =>
+      val sources = new File(dir, "src")
+      write(sources, "page.scala.html", "@(n: Int)\n<p>@n</p>\n")
+
+      val legacy = new File(dir, "legacy")
+      TemplateCompiler.compile(
+        Seq(sources),
+        legacy,
+        SbtTwirl.defaultFormats,
+        Nil,
+        Nil,
+        GlobFilter("*.scala.*"),
+        HiddenFileFilter,
+        Codec.UTF8,
+        Logger.Null,
+        "2.13.x"
+      ) must have size 1
+      new File(legacy, CompilationIndex.FileName).exists mustBe false
+
+      val incremental = new File(dir, "incremental")
+      compile(sources, incremental, parallelism = 1) must have size 1
+      new File(incremental, CompilationIndex.FileName).isFile mustBe true
+    }
+
+    "report the error of the first failed template in source order" in IO.withTemporaryDirectory { dir =>
+      val sources = new File(dir, "src")
+      write(sources, "a.scala.html", "@(n: Int)\n<p>@n</p>\n")
+      write(sources, "b.scala.html", "@(n: Int)\n@if(n > 0) {\n")
+      write(sources, "c.scala.html", "@(n: Int)\n@if(n > 0) {\n")
+
+      Seq(1, 3).foreach { parallelism =>
+        val e = the[ProblemException] thrownBy compile(sources, new File(dir, "target"), parallelism)
+        e.problems.head.position.sourcePath.get must endWith("b.scala.html")
+      }
+    }
+  }
+}